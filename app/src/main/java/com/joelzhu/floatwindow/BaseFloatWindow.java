@@ -1,15 +1,21 @@
 package com.joelzhu.floatwindow;
 
 import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
 import android.graphics.PixelFormat;
+import android.support.annotation.LayoutRes;
 import android.util.DisplayMetrics;
+import android.view.LayoutInflater;
 import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewGroup;
 import android.view.WindowManager;
 import android.view.WindowManager.LayoutParams;
+import android.widget.ImageView;
 
 import java.lang.ref.WeakReference;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Base class of the float window.
@@ -21,11 +27,19 @@ public abstract class BaseFloatWindow {
     protected WeakReference<Context> mWeakRefContext;
     protected WindowManager mWindowManager;
     protected WindowManager.LayoutParams mLayoutParams;
+    // Window's configuration, may be shared with other windows.
+    protected FloatWindowConfig mConfig;
     
     // Window's view.
     protected View mWindowView;
     // FloatView's parent view group.
     protected ViewGroup mParentView;
+    // The view kept in the parent view group while the window is showing, only works when mLayoutType set as ITSELF.
+    protected View mPlaceholderView;
+    
+    // Layout params and index of the view in parent view group, to restore the view when dismissed.
+    private ViewGroup.LayoutParams mParentLayoutParams;
+    private int mParentIndex = -1;
     
     // Window's moving direction.
     @MoveDirection
@@ -36,9 +50,40 @@ public abstract class BaseFloatWindow {
     // Window's layout type.
     @LayoutType
     protected int mLayoutType;
+    // Window's layout resource, only works when mLayoutType set as RESOURCE.
+    @LayoutRes
+    protected int mLayoutResId;
+    // The pool that window's view taken from, only works when mLayoutType set as RESOURCE.
+    protected FloatWindowViewPool mViewPool;
+    // Window's surface configuration specified by us, null means choosing automatically.
+    protected FloatWindowSurfaceConfig mSurfaceConfigOverride;
+    
+    // Window's surface configuration currently applied.
+    private FloatWindowSurfaceConfig mSurfaceConfig;
     
-    // Is window showing.
+    // Is window showing, which means attached to the window manager.
     private boolean mIsWindowShowing = false;
+    // Is window waiting to be attached by FloatWindowAttachScheduler.
+    private boolean mIsAttachPending = false;
+    // Is window handling the touch event, the window popped up at this time is under the user's finger.
+    boolean mIsHandlingTouch = false;
+    
+    // Is the touch events dispatched without batching, the moves are applied once per frame in this case.
+    protected boolean mIsLowLatencyInput = false;
+    // Apply the moves on the next frame, created when first used.
+    private FloatWindowFrameTrigger mMoveTrigger;
+    
+    // Is window collapsed to the icon, the window is still showing in this state.
+    private boolean mIsWindowCollapsed = false;
+    // Size of the collapsed window, 0 means the default size.
+    protected int mCollapsedSize;
+    // View shown in the window while collapsed.
+    private View mCollapsedView;
+    // Snapshot of the window's view, shown while collapsed.
+    private Bitmap mCollapsedSnapshot;
+    // Window's size before collapsed.
+    private int mExpandedWidth;
+    private int mExpandedHeight;
     
     // Float window's margin left and margin right.
     protected int mFloatViewLeft;
@@ -52,6 +97,17 @@ public abstract class BaseFloatWindow {
     private int mLastX;
     private int mLastY;
     
+    // Thread-safe command API, created when first used.
+    private final AtomicReference<FloatWindowCommander> mCommander = new AtomicReference<>();
+    // High-rate content update channel, created when opened.
+    private FloatWindowContentChannel<?> mContentChannel;
+    
+    // Key to retain the showing window when the activity recreated by configuration changes, null means never.
+    protected String mRetainKey;
+    // The view from the recreated activity, it will replace the window's view after dismissed.
+    private View mReboundWindowView;
+    private boolean mHasReboundWindowView = false;
+    
     /**
      * Lifecycle: When FloatWindow created.
      */
@@ -59,25 +115,27 @@ public abstract class BaseFloatWindow {
         this.mWindowManager = (WindowManager) getContext().getSystemService(Context.WINDOW_SERVICE);
         
         // Calculate the screen's size when create the window.
-        DisplayMetrics dm = new DisplayMetrics();
-        mWindowManager.getDefaultDisplay().getMetrics(dm);
-        mScreenWidth = dm.widthPixels;
-        mScreenHeight = dm.heightPixels;
+        updateScreenSize();
+        
+        // Copy the base attribute in LayoutParams from the configuration.
+        if (mConfig != null) {
+            this.mLayoutParams = mConfig.newLayoutParams();
+            return;
+        }
         
         // Set base attribute in LayoutParams.
         this.mLayoutParams = new WindowManager.LayoutParams();
-        // Make this window transparent.
+        // Make this window transparent, the format will be chosen again when pop up.
         this.mLayoutParams.format = PixelFormat.RGBA_8888;
         // Make this window above all the other applications.
-        this.mLayoutParams.type = WindowManager.LayoutParams.TYPE_SYSTEM_ALERT;
+        this.mLayoutParams.type = FloatWindowSurfaceConfig.getDefaultWindowType();
     }
     
     /**
      * Lifecycle: When FloatWindow destroyed.
      */
     protected void onWindowDestroy() {
-        mWeakRefContext = null;
-        
+        // Context is kept, the window can be popped up again, and the view may need to be inflated from the pool.
         mLastX = 0;
         mLastY = 0;
         
@@ -87,10 +145,29 @@ public abstract class BaseFloatWindow {
         mFirstDirection = FirstDirection.NO_DIRECTION;
     }
     
+    /**
+     * Lifecycle: When window's view taken from {@link FloatWindowViewPool} or inflated again after released, the view
+     * may be used by other windows before, reset the view's content here.
+     */
+    protected void onBindWindowView(View windowView) {
+    }
+    
+    /**
+     * Lifecycle: When the resources should be released, due to the memory pressure or the activity destroyed. Drop the
+     * cached bitmaps or something else held by the subclass here, the library releases the window's own resources
+     * after this.
+     */
+    protected void onReleaseResources(@ReleaseLevel int level) {
+    }
+    
     /**
      * Pop up the window from the origin view's position.
      */
     protected void popupWindowFromOrigin() {
+        if (mLayoutParams == null) {
+            FloatWindowHelper.printErrorLog("LayoutParams is null.");
+            return;
+        }
         final int left = mFloatViewLeft + mLayoutParams.width / 2;
         final int top = mFloatViewTop + mLayoutParams.height / 2;
         popupWindow(left, top);
@@ -106,33 +183,88 @@ public abstract class BaseFloatWindow {
      * @param layoutY The coordinates on Y-Axis.
      */
     protected void popupWindow(int layoutX, int layoutY) {
-        if (mWindowManager == null) {
-            FloatWindowHelper.printErrorLog("Window manager is null.");
-            return;
+        final FloatWindowProfiler profiler = FloatWindowProfiler.getInstance();
+        profiler.beginLibraryCall();
+        try {
+            if (!FloatWindowHelper.isMainThread()) {
+                FloatWindowHelper.printErrorLog("Pop up window must be called on the UI thread, use getCommander().");
+                return;
+            }
+            if (mWindowManager == null) {
+                FloatWindowHelper.printErrorLog("Window manager is null.");
+                return;
+            }
+            // Check before updating the position, the showing window must not be changed.
+            if (mIsWindowShowing || mIsAttachPending) {
+                FloatWindowHelper.printErrorLog("Window is showing already.");
+                return;
+            }
+            // Take the view from the pool or inflate it again, if it was released when dismissed.
+            if (mWindowView == null && mLayoutType == LayoutType.RESOURCE && mLayoutResId != 0) {
+                acquireWindowView();
+            }
+            if (mWindowView == null) {
+                FloatWindowHelper.printErrorLog("View is null.");
+                return;
+            }
+            if (mLayoutParams == null) {
+                FloatWindowHelper.printErrorLog("LayoutParams is null.");
+                return;
+            }
+            
+            // Convert coordinates from that in LayoutParams to that in screen layout.
+            else {
+                setLayoutPosition(layoutX, layoutY);
+            }
+            
+            // Attach the window now, or in the following frames if too many windows pop up at the same time.
+            mIsAttachPending = true;
+            FloatWindowAttachScheduler.getInstance().schedule(this, mIsHandlingTouch);
+        } finally {
+            profiler.endLibraryCall();
+        }
+    }
+    
+    /**
+     * Attach the window to the window manager, called by {@link FloatWindowAttachScheduler}.
+     *
+     * @return The view attached, null if not attached.
+     */
+    View attachWindow() {
+        if (!mIsAttachPending) {
+            return null;
+        }
+        mIsAttachPending = false;
+        // The window may be released while waiting.
+        if (mWindowManager == null || mLayoutParams == null) {
+            FloatWindowHelper.printErrorLog("Window was released before attached.");
+            return null;
+        }
+        if (mWindowView == null && mLayoutType == LayoutType.RESOURCE && mLayoutResId != 0) {
+            acquireWindowView();
         }
         if (mWindowView == null) {
             FloatWindowHelper.printErrorLog("View is null.");
-            return;
-        }
-        if (mLayoutParams == null) {
-            FloatWindowHelper.printErrorLog("LayoutParams is null.");
-            return;
+            return null;
         }
         
-        // Convert coordinates from that in LayoutParams to that in screen layout.
-        else {
-            mLayoutParams.x = layoutX - mScreenWidth / 2;
-            mLayoutParams.y = layoutY - mScreenHeight / 2;
+        // Hide the placeholder, it keeps the size so the parent view group doesn't need to layout again.
+        if (mLayoutType == LayoutType.ITSELF && mPlaceholderView != null) {
+            mPlaceholderView.setVisibility(View.INVISIBLE);
         }
-        
         // Remove the view itself from parent view group first.
-        if (mLayoutType == LayoutType.ITSELF && mParentView != null) {
+        else if (mLayoutType == LayoutType.ITSELF && mParentView != null) {
+            mParentLayoutParams = mWindowView.getLayoutParams();
+            mParentIndex = mParentView.indexOfChild(mWindowView);
             mParentView.removeView(mWindowView);
         }
+        // Choose the surface's format and type by the content.
+        applySurfaceConfig(false);
         // Pop up the window.
-        mWindowManager.addView(mWindowView, mLayoutParams);
+        addWindowView(mWindowView);
         mIsWindowShowing = true;
         FloatWindowHelper.printInfoLog("Float window pop up succeed.");
+        return mWindowView;
     }
     
     /**
@@ -152,63 +284,610 @@ public abstract class BaseFloatWindow {
      * @param deltaY The moving distance on Y-Axis.
      */
     protected void moveWindow(int deltaX, int deltaY) {
-        if (mWindowManager == null) {
-            FloatWindowHelper.printErrorLog("Window manager is null.");
-            return;
+        final FloatWindowProfiler profiler = FloatWindowProfiler.getInstance();
+        profiler.beginLibraryCall();
+        try {
+            if (!FloatWindowHelper.isMainThread()) {
+                FloatWindowHelper.printErrorLog("Move window must be called on the UI thread, use getCommander().");
+                return;
+            }
+            if (mWindowManager == null) {
+                FloatWindowHelper.printErrorLog("Window manager is null.");
+                return;
+            }
+            if (getAttachedView() == null) {
+                FloatWindowHelper.printErrorLog("View is null.");
+                return;
+            }
+            if (mLayoutParams == null) {
+                FloatWindowHelper.printErrorLog("LayoutParams is null.");
+                return;
+            }
+            
+            offsetLayoutPosition(deltaX, deltaY);
+            // The position will be applied when attached.
+            if (mIsAttachPending) {
+                return;
+            }
+            // The events come faster than frames, apply only the latest position on the next frame.
+            if (mIsLowLatencyInput) {
+                if (mMoveTrigger == null) {
+                    mMoveTrigger = new FloatWindowFrameTrigger(new FloatWindowFrameTrigger.Callback() {
+                        @Override
+                        public void onFrame(long frameTimeNanos) {
+                            updateWindowLayout();
+                        }
+                    });
+                }
+                mMoveTrigger.schedule();
+                return;
+            }
+            
+            // TODO: mWindowView.isAttachedToWindow()
+            updateWindowViewLayout(getAttachedView());
+        } finally {
+            profiler.endLibraryCall();
         }
-        if (mWindowView == null) {
-            FloatWindowHelper.printErrorLog("View is null.");
+    }
+    
+    /**
+     * Dismiss the window.
+     */
+    protected void dismissWindow() {
+        final FloatWindowProfiler profiler = FloatWindowProfiler.getInstance();
+        profiler.beginLibraryCall();
+        try {
+            if (!FloatWindowHelper.isMainThread()) {
+                FloatWindowHelper.printErrorLog("Dismiss window must be called on the UI thread, use getCommander().");
+                return;
+            }
+            // The window is not attached yet, just remove it from the queue.
+            if (mIsAttachPending) {
+                FloatWindowAttachScheduler.getInstance().cancel(this);
+                mIsAttachPending = false;
+                onWindowDestroy();
+                return;
+            }
+            if (mWindowManager == null) {
+                FloatWindowHelper.printErrorLog("Window manager is null.");
+                return;
+            }
+            if (getAttachedView() == null) {
+                FloatWindowHelper.printErrorLog("View is null.");
+                return;
+            }
+            
+            // Remove the window from WindowManager immediately.
+            removeWindowView(getAttachedView());
+            if (mIsWindowCollapsed) {
+                releaseCollapsedView();
+            }
+            // Show the placeholder again.
+            if (mLayoutType == LayoutType.ITSELF && mPlaceholderView != null) {
+                mPlaceholderView.setVisibility(View.VISIBLE);
+            }
+            // The view from the recreated activity is already in the parent view group, show it instead of the old one.
+            else if (mLayoutType == LayoutType.ITSELF && mHasReboundWindowView) {
+                if (mReboundWindowView != null) {
+                    mReboundWindowView.setVisibility(View.VISIBLE);
+                }
+            }
+            // Re-add view to parent view group, with it's origin layout params and index.
+            else if (mLayoutType == LayoutType.ITSELF && mParentView != null && mWindowView != null) {
+                addBackToParent();
+            }
+            // Give the view back to the pool, it will be taken again when pop up.
+            // The view inflated by the destroyed activity can't be reused.
+            else if (mLayoutType == LayoutType.RESOURCE && mViewPool != null && mWindowView != null &&
+                    !mHasReboundWindowView) {
+                mViewPool.release(mLayoutResId, mWindowView);
+                mWindowView = null;
+            }
+            // Switch to the view from the recreated activity.
+            if (mHasReboundWindowView) {
+                mWindowView = mReboundWindowView;
+                mReboundWindowView = null;
+                mHasReboundWindowView = false;
+                if (mContentChannel != null) {
+                    mContentChannel.rebind();
+                }
+            }
+            FloatWindowHelper.printInfoLog("Float window remove succeed.");
+            
+            onWindowDestroy();
+        } finally {
+            profiler.endLibraryCall();
+        }
+    }
+    
+    /**
+     * Called by {@link FloatWindowAttachScheduler} when the window manager refused to add the window, put the view back
+     * as it was before pop up.
+     */
+    void onAttachFailed() {
+        if (mLayoutType == LayoutType.ITSELF && mPlaceholderView != null) {
+            mPlaceholderView.setVisibility(View.VISIBLE);
+        } else if (mLayoutType == LayoutType.ITSELF && mParentView != null && mWindowView != null &&
+                mWindowView.getParent() == null) {
+            addBackToParent();
+        }
+        onWindowDestroy();
+    }
+    
+    /**
+     * Re-add view to parent view group, with it's origin layout params and index.
+     */
+    private void addBackToParent() {
+        // The parent may lose some children while the window is showing.
+        final int index = Math.min(mParentIndex, mParentView.getChildCount());
+        if (mParentLayoutParams != null) {
+            mParentView.addView(mWindowView, index, mParentLayoutParams);
+        } else {
+            mParentView.addView(mWindowView, index);
+        }
+        mParentLayoutParams = null;
+        mParentIndex = -1;
+    }
+    
+    /**
+     * Update the window's transparent.
+     */
+    protected void updateWindowTransparent(float transparent) {
+        if (!FloatWindowHelper.isMainThread()) {
+            FloatWindowHelper.printErrorLog("Update transparent must be called on the UI thread, use getCommander().");
             return;
         }
-        if (mLayoutParams == null) {
-            FloatWindowHelper.printErrorLog("LayoutParams is null.");
+        this.mLayoutParams.alpha = transparent;
+    }
+    
+    /**
+     * Collapse the showing window to a small icon, which shows the snapshot of the window's view.
+     *
+     * The window's view is detached, so it's surface is released. If the view can be recreated from the layout
+     * resource, the view is released as well, given back to {@link FloatWindowViewPool} if there's one. Call
+     * {@link #expandWindow()} to restore the window.
+     */
+    protected void collapseWindow() {
+        final FloatWindowProfiler profiler = FloatWindowProfiler.getInstance();
+        profiler.beginLibraryCall();
+        try {
+            if (!FloatWindowHelper.isMainThread()) {
+                FloatWindowHelper.printErrorLog("Collapse window must be called on the UI thread.");
+                return;
+            }
+            if (!mIsWindowShowing || mIsWindowCollapsed || mWindowManager == null || mWindowView == null ||
+                    mLayoutParams == null) {
+                FloatWindowHelper.printErrorLog("Window is not showing, or collapsed already.");
+                return;
+            }
+            
+            // Create the icon before the view detached.
+            final int collapsedSize = getCollapsedSize();
+            mCollapsedSnapshot = createSnapshot(mWindowView, collapsedSize);
+            mCollapsedView = onCreateCollapsedView(mCollapsedSnapshot);
+            
+            // Replace the window's view with the icon, at the same position.
+            removeWindowView(mWindowView);
+            mExpandedWidth = mLayoutParams.width;
+            mExpandedHeight = mLayoutParams.height;
+            mLayoutParams.width = collapsedSize;
+            mLayoutParams.height = collapsedSize;
+            // The snapshot may not fill the square icon, the margins must be transparent.
+            FloatWindowSurfaceConfig.TRANSLUCENT.applyTo(mLayoutParams, true);
+            addWindowView(mCollapsedView);
+            mIsWindowCollapsed = true;
+            
+            // Release the view which can be recreated from the layout resource.
+            if (mLayoutType == LayoutType.RESOURCE && mLayoutResId != 0) {
+                if (mViewPool != null) {
+                    mViewPool.release(mLayoutResId, mWindowView);
+                }
+                mWindowView = null;
+            }
+            FloatWindowHelper.printInfoLog("Float window collapse succeed.");
+        } finally {
+            profiler.endLibraryCall();
+        }
+    }
+    
+    /**
+     * Expand the collapsed window, the window's view will be recreated if it was released.
+     */
+    protected void expandWindow() {
+        final FloatWindowProfiler profiler = FloatWindowProfiler.getInstance();
+        profiler.beginLibraryCall();
+        try {
+            if (!FloatWindowHelper.isMainThread()) {
+                FloatWindowHelper.printErrorLog("Expand window must be called on the UI thread.");
+                return;
+            }
+            if (!mIsWindowCollapsed || mWindowManager == null || mLayoutParams == null) {
+                FloatWindowHelper.printErrorLog("Window is not collapsed.");
+                return;
+            }
+            
+            // Recreate the view first, keep the icon if failed.
+            if (mWindowView == null && mLayoutType == LayoutType.RESOURCE && mLayoutResId != 0) {
+                acquireWindowView();
+            }
+            if (mWindowView == null) {
+                FloatWindowHelper.printErrorLog("View is null.");
+                return;
+            }
+            
+            removeWindowView(mCollapsedView);
+            releaseCollapsedView();
+            // Restore the configuration chosen when popped up.
+            if (mSurfaceConfig != null) {
+                mSurfaceConfig.applyTo(mLayoutParams, true);
+            }
+            addWindowView(mWindowView);
+            FloatWindowHelper.printInfoLog("Float window expand succeed.");
+        } finally {
+            profiler.endLibraryCall();
+        }
+    }
+    
+    /**
+     * Lifecycle: When the window collapsed, create the view shown in the window. By default, it's an icon of the
+     * snapshot, and expands the window when clicked.
+     *
+     * @param snapshot The snapshot of the window's view, null if failed to create it.
+     */
+    protected View onCreateCollapsedView(Bitmap snapshot) {
+        final ImageView imageView = new ImageView(mWindowView.getContext());
+        imageView.setImageBitmap(snapshot);
+        imageView.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View view) {
+                expandWindow();
+            }
+        });
+        return imageView;
+    }
+    
+    /**
+     * Draw the view into a bitmap whose longer side is the size, keeping the aspect ratio. The default icon centers it
+     * in the square window.
+     */
+    private static Bitmap createSnapshot(View view, int size) {
+        if (view.getWidth() <= 0 || view.getHeight() <= 0 || size <= 0) {
+            return null;
+        }
+        final float scale = Math.min((float) size / view.getWidth(), (float) size / view.getHeight());
+        final int width = Math.max(1, Math.round(view.getWidth() * scale));
+        final int height = Math.max(1, Math.round(view.getHeight() * scale));
+        // No alpha channel is needed for the opaque view, it takes half of the memory.
+        final Bitmap snapshot = Bitmap.createBitmap(width, height,
+                view.isOpaque() ? Bitmap.Config.RGB_565 : Bitmap.Config.ARGB_8888);
+        final Canvas canvas = new Canvas(snapshot);
+        canvas.scale(scale, scale);
+        view.draw(canvas);
+        return snapshot;
+    }
+    
+    /**
+     * Release the icon and the snapshot after the icon detached.
+     */
+    private void releaseCollapsedView() {
+        // Leave the collapsed state with the expanded size, the window may pop up again after dismissed.
+        if (mLayoutParams != null) {
+            mLayoutParams.width = mExpandedWidth;
+            mLayoutParams.height = mExpandedHeight;
+        }
+        mCollapsedView = null;
+        if (mCollapsedSnapshot != null) {
+            mCollapsedSnapshot.recycle();
+            mCollapsedSnapshot = null;
+        }
+        mIsWindowCollapsed = false;
+    }
+    
+    /**
+     * Get size of the collapsed window, 48dp by default.
+     */
+    private int getCollapsedSize() {
+        if (mCollapsedSize > 0) {
+            return mCollapsedSize;
+        }
+        return (int) (48 * mWindowView.getContext().getResources().getDisplayMetrics().density);
+    }
+    
+    /**
+     * Get the view attached to the window manager, it's the icon while collapsed.
+     */
+    private View getAttachedView() {
+        return mIsWindowCollapsed ? mCollapsedView : mWindowView;
+    }
+    
+    /**
+     * Apply the surface configuration to {@link LayoutParams}, see {@link FloatWindowSurfaceConfig}.
+     */
+    private void applySurfaceConfig(boolean isWindowAdded) {
+        final FloatWindowSurfaceConfig surfaceConfig = mSurfaceConfigOverride != null ? mSurfaceConfigOverride :
+                FloatWindowSurfaceConfig.choose(mWindowView, mLayoutParams.alpha);
+        if (surfaceConfig == mSurfaceConfig && isWindowAdded) {
             return;
         }
+        surfaceConfig.applyTo(mLayoutParams, isWindowAdded);
+        mSurfaceConfig = surfaceConfig;
+    }
+    
+    /**
+     * Re-bind the window retained from the destroyed activity to the recreated one, the window keeps showing with
+     * it's position and state.
+     *
+     * While the window is showing, the new {@link FloatView} stays invisible in it's parent view group as the
+     * placeholder, and the window keeps the view from the destroyed activity, which will be replaced by the new view
+     * after dismissed. If the window shows the mirror of the placeholder, the mirror draws the new one immediately.
+     *
+     * @param windowView The new window's view, null if it will be taken from the pool or inflated again.
+     */
+    void rebind(Context context, FloatView floatView, View windowView, ViewGroup parentView) {
+        mWeakRefContext = new WeakReference<>(context);
+        mWindowManager = (WindowManager) context.getSystemService(Context.WINDOW_SERVICE);
+        // The screen may be rotated.
+        updateScreenSize();
+        mParentView = parentView;
+        mParentLayoutParams = null;
+        mParentIndex = -1;
         
-        // Update layout params though delta value on X-Axis.
-        if (mMoveDirection == MoveDirection.X_AXIS || mMoveDirection == MoveDirection.ANY_DIRECTION ||
-                (mMoveDirection == MoveDirection.FIRST_DIRECTION && mFirstDirection == FirstDirection.FIRST_X)) {
-            mLayoutParams.x = mLayoutParams.x + deltaX;
+        final View newWindowView = mLayoutType == LayoutType.ITSELF ? floatView : windowView;
+        if (mWindowView instanceof FloatViewMirror) {
+            ((FloatViewMirror) mWindowView).setSourceView(floatView);
+            mPlaceholderView = floatView;
+        } else if (!mIsWindowShowing) {
+            mWindowView = newWindowView;
+        } else {
+            // The content stays in the showing view until it's replaced after dismissed.
+            mReboundWindowView = newWindowView;
+            mHasReboundWindowView = true;
         }
-        // Update layout params though delta value on Y-Axis.
-        if (mMoveDirection == MoveDirection.Y_AXIS || mMoveDirection == MoveDirection.ANY_DIRECTION ||
-                (mMoveDirection == MoveDirection.FIRST_DIRECTION && mFirstDirection == FirstDirection.FIRST_Y)) {
-            mLayoutParams.y = mLayoutParams.y + deltaY;
+        if (mIsWindowShowing && mLayoutType == LayoutType.ITSELF) {
+            floatView.setVisibility(View.INVISIBLE);
         }
-        
-        // TODO: mWindowView.isAttachedToWindow()
-        mWindowManager.updateViewLayout(mWindowView, mLayoutParams);
+        // Apply the latest content to the new view.
+        if (mContentChannel != null) {
+            mContentChannel.rebind();
+        }
+        FloatWindowHelper.printInfoLog("Float window re-bound to the recreated activity.");
     }
     
     /**
-     * Dismiss the window.
+     * Add the view to the window manager. The calls to the window manager are measured as the library's time, when
+     * called by the hook sampled by {@link FloatWindowProfiler}.
      */
-    protected void dismissWindow() {
-        if (mWindowManager == null) {
-            FloatWindowHelper.printErrorLog("Window manager is null.");
+    private void addWindowView(View view) {
+        final FloatWindowProfiler profiler = FloatWindowProfiler.getInstance();
+        profiler.beginLibraryCall();
+        try {
+            mWindowManager.addView(view, mLayoutParams);
+        } finally {
+            profiler.endLibraryCall();
+        }
+    }
+    
+    /**
+     * Apply {@link LayoutParams} to the view in the window manager.
+     */
+    private void updateWindowViewLayout(View view) {
+        final FloatWindowProfiler profiler = FloatWindowProfiler.getInstance();
+        profiler.beginLibraryCall();
+        try {
+            mWindowManager.updateViewLayout(view, mLayoutParams);
+        } finally {
+            profiler.endLibraryCall();
+        }
+    }
+    
+    /**
+     * Remove the view from the window manager immediately.
+     */
+    private void removeWindowView(View view) {
+        final FloatWindowProfiler profiler = FloatWindowProfiler.getInstance();
+        profiler.beginLibraryCall();
+        try {
+            mWindowManager.removeViewImmediate(view);
+        } finally {
+            profiler.endLibraryCall();
+        }
+    }
+    
+    /**
+     * Calculate the screen's size.
+     */
+    private void updateScreenSize() {
+        DisplayMetrics dm = new DisplayMetrics();
+        mWindowManager.getDefaultDisplay().getMetrics(dm);
+        mScreenWidth = dm.widthPixels;
+        mScreenHeight = dm.heightPixels;
+    }
+    
+    /**
+     * Take the window's view from {@link FloatWindowViewPool} or inflate it from the layout resource, and bind it.
+     */
+    void acquireWindowView() {
+        final Context context = mWeakRefContext == null ? null : mWeakRefContext.get();
+        if (mViewPool != null) {
+            mWindowView = mViewPool.acquire(context, mLayoutResId);
+        } else if (context != null) {
+            mWindowView = LayoutInflater.from(context).inflate(mLayoutResId, null, false);
+        } else {
+            FloatWindowHelper.printErrorLog("Context is null, can't create view instance from layout resource.");
             return;
         }
-        if (mWindowView == null) {
-            FloatWindowHelper.printErrorLog("View is null.");
+        onBindWindowView(mWindowView);
+        // Restore the latest content to the new view.
+        if (mContentChannel != null) {
+            mContentChannel.rebind();
+        }
+    }
+    
+    /**
+     * Get the view holding the window's content, it's the placeholder if the window's view is a mirror of it.
+     */
+    View getContentView() {
+        return mPlaceholderView != null ? mPlaceholderView : mWindowView;
+    }
+    
+    /**
+     * The size of the window's content changed by {@link FloatWindowContentChannel}, layout the view again.
+     */
+    void onContentSizeChanged() {
+        final View contentView = getContentView();
+        if (contentView == null) {
+            return;
+        }
+        contentView.requestLayout();
+        // The placeholder is laid out by it's parent, the window follows it in FloatView.onLayout().
+        // The size specified by the configuration is kept.
+        if (contentView != getAttachedView() || !mIsWindowShowing || mLayoutParams == null ||
+                (mConfig != null && mConfig.hasWindowSize())) {
+            return;
+        }
+        // The window's root is measured by the window's size, measure it's own size to resize the window.
+        contentView.measure(View.MeasureSpec.makeMeasureSpec(mScreenWidth, View.MeasureSpec.AT_MOST),
+                View.MeasureSpec.makeMeasureSpec(mScreenHeight, View.MeasureSpec.AT_MOST));
+        final int width = contentView.getMeasuredWidth();
+        final int height = contentView.getMeasuredHeight();
+        if (width == mLayoutParams.width && height == mLayoutParams.height) {
             return;
         }
+        mLayoutParams.width = width;
+        mLayoutParams.height = height;
+        updateWindowLayout();
+    }
+    
+    /**
+     * Release the resources held by the window, see {@link ReleaseLevel}.
+     */
+    void releaseResources(@ReleaseLevel int level) {
+        if (level == ReleaseLevel.NONE) {
+            return;
+        }
+        onReleaseResources(level);
         
-        // Remove the window from WindowManager immediately.
-        mWindowManager.removeViewImmediate(mWindowView);
-        // Re-add view to parent view group.
-        if (mLayoutType == LayoutType.ITSELF && mParentView != null) {
-            mParentView.addView(mWindowView, mLayoutParams);
+        // Detach the window which is showing but can't be seen.
+        if (level >= ReleaseLevel.WARM_WINDOWS && mIsWindowShowing && mWindowView != null && mLayoutParams != null &&
+                (mLayoutParams.alpha == 0f || mWindowView.getVisibility() != View.VISIBLE)) {
+            FloatWindowHelper.printInfoLog("Detach the invisible window.");
+            dismissWindow();
         }
-        FloatWindowHelper.printInfoLog("Float window remove succeed.");
         
-        onWindowDestroy();
+        // Release the view which can be recreated from the layout resource.
+        if (level >= ReleaseLevel.LAYOUTS && !mIsWindowShowing && !mIsAttachPending && mWindowView != null &&
+                mLayoutType == LayoutType.RESOURCE && mLayoutResId != 0) {
+            if (mViewPool != null) {
+                mViewPool.release(mLayoutResId, mWindowView);
+            }
+            mWindowView = null;
+        }
+        
+        // Release all the references, the window can't be used any more.
+        if (level >= ReleaseLevel.ALL) {
+            if (mIsWindowShowing || mIsAttachPending) {
+                dismissWindow();
+            }
+            mWindowView = null;
+            mParentView = null;
+            mPlaceholderView = null;
+            mParentLayoutParams = null;
+            mReboundWindowView = null;
+            mHasReboundWindowView = false;
+            mLayoutParams = null;
+            mWindowManager = null;
+            mViewPool = null;
+            mContentChannel = null;
+            mWeakRefContext = null;
+        }
     }
     
     /**
-     * Update the window's transparent.
+     * Is the window created with the context.
      */
-    protected void updateWindowTransparent(float transparent) {
-        this.mLayoutParams.alpha = transparent;
+    boolean isCreatedWith(Context context) {
+        return mWeakRefContext != null && mWeakRefContext.get() == context;
+    }
+    
+    /**
+     * Open the high-rate content update channel of this window, see {@link FloatWindowContentChannel}. Must be called
+     * on the UI thread, the window has only one channel, and the channel opened before will be replaced.
+     */
+    public <T> FloatWindowContentChannel<T> openContentChannel(FloatWindowContentChannel.Binder<T> binder) {
+        FloatWindowContentChannel<T> contentChannel = new FloatWindowContentChannel<>(this, binder);
+        mContentChannel = contentChannel;
+        return contentChannel;
+    }
+    
+    /**
+     * Get the report of what the window is currently holding.
+     */
+    public FloatWindowFootprint getFootprint() {
+        int surfaceWidth = 0;
+        int surfaceHeight = 0;
+        // The surface is the icon's while collapsed.
+        final View attachedView = getAttachedView();
+        if (attachedView != null) {
+            surfaceWidth = attachedView.getWidth();
+            surfaceHeight = attachedView.getHeight();
+        }
+        return new FloatWindowFootprint(getClass().getName(), mIsWindowShowing,
+                mWeakRefContext != null && mWeakRefContext.get() != null, mLayoutParams != null, mParentView != null,
+                countViews(mWindowView), surfaceWidth, surfaceHeight);
+    }
+    
+    /**
+     * Count the views in the view tree.
+     */
+    private static int countViews(View view) {
+        if (view == null) {
+            return 0;
+        }
+        int count = 1;
+        if (view instanceof ViewGroup) {
+            final ViewGroup viewGroup = (ViewGroup) view;
+            for (int i = 0; i < viewGroup.getChildCount(); i++) {
+                count += countViews(viewGroup.getChildAt(i));
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * Set the window's position in {@link LayoutParams} by coordinates on screen, without updating the layout.
+     */
+    void setLayoutPosition(int layoutX, int layoutY) {
+        mLayoutParams.x = layoutX - mScreenWidth / 2;
+        mLayoutParams.y = layoutY - mScreenHeight / 2;
+    }
+    
+    /**
+     * Offset the window's position in {@link LayoutParams} according to the moving direction, without updating the
+     * layout. See {@link #moveWindow(int, int)}.
+     */
+    void offsetLayoutPosition(int deltaX, int deltaY) {
+        // Update layout params though delta value on X-Axis.
+        if (mMoveDirection == MoveDirection.X_AXIS || mMoveDirection == MoveDirection.ANY_DIRECTION ||
+                (mMoveDirection == MoveDirection.FIRST_DIRECTION && mFirstDirection == FirstDirection.FIRST_X)) {
+            mLayoutParams.x = mLayoutParams.x + deltaX;
+        }
+        // Update layout params though delta value on Y-Axis.
+        if (mMoveDirection == MoveDirection.Y_AXIS || mMoveDirection == MoveDirection.ANY_DIRECTION ||
+                (mMoveDirection == MoveDirection.FIRST_DIRECTION && mFirstDirection == FirstDirection.FIRST_Y)) {
+            mLayoutParams.y = mLayoutParams.y + deltaY;
+        }
+    }
+    
+    /**
+     * Apply the current {@link LayoutParams} to the window, only works when the window is showing.
+     */
+    void updateWindowLayout() {
+        if (!mIsWindowShowing || mWindowManager == null || getAttachedView() == null) {
+            return;
+        }
+        // The format is chosen once when added, changing it rebuilds the surface. The transparent is applied by the
+        // compositor, it works with any format.
+        updateWindowViewLayout(getAttachedView());
     }
     
     /**
@@ -318,8 +997,46 @@ public abstract class BaseFloatWindow {
         return mLastY;
     }
     
+    /**
+     * Is the window showing, or waiting to be attached by {@link FloatWindowAttachScheduler}.
+     */
     public boolean isWindowShowing() {
-        return mIsWindowShowing;
+        return mIsWindowShowing || mIsAttachPending;
+    }
+    
+    /**
+     * Priority of attaching the window, when too many windows pop up at the same time, see
+     * {@link FloatWindowAttachScheduler}. The higher one attaches earlier, 0 by default.
+     */
+    protected int getAttachPriority() {
+        return 0;
+    }
+    
+    /**
+     * Is the window collapsed to the icon, the window is still showing in this state.
+     */
+    public boolean isWindowCollapsed() {
+        return mIsWindowCollapsed;
+    }
+    
+    /**
+     * Get the surface configuration applied when the window popped up last time, null if never popped up.
+     */
+    public FloatWindowSurfaceConfig getSurfaceConfig() {
+        return mSurfaceConfig;
+    }
+    
+    /**
+     * Get the thread-safe command API of this window, which can be called on any thread.
+     */
+    public FloatWindowCommander getCommander() {
+        final FloatWindowCommander commander = mCommander.get();
+        if (commander != null) {
+            return commander;
+        }
+        // Never lock here, the threads racing on the first call may create more than one, but only one is published.
+        mCommander.compareAndSet(null, new FloatWindowCommander(this, FloatWindowCommander.DEFAULT_CAPACITY));
+        return mCommander.get();
     }
     
     /**
@@ -1,12 +1,15 @@
 package com.joelzhu.floatwindow;
 
 import android.content.Context;
+import android.graphics.Rect;
 import android.support.annotation.LayoutRes;
 import android.util.AttributeSet;
 import android.view.LayoutInflater;
 import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewGroup;
+import android.view.ViewParent;
+import android.view.ViewTreeObserver;
 import android.widget.LinearLayout;
 
 import java.lang.ref.WeakReference;
@@ -45,6 +48,22 @@ public class FloatView extends LinearLayout {
     // No need to update the size when set size by us outside.
     private boolean mIsNeedLayout = true;
     
+    // Draw the mirror in the window again when the content changed, see keepPlaceholder().
+    private final ViewTreeObserver.OnPreDrawListener mMirrorUpdater = new ViewTreeObserver.OnPreDrawListener() {
+        @Override
+        public boolean onPreDraw() {
+            if (isMirrorShowing() && isDirty()) {
+                mFloatWindow.mWindowView.invalidate();
+            }
+            return true;
+        }
+    };
+    
+    // Cost counters of the window class, see FloatWindowProfiler.
+    private FloatWindowProfiler.WindowStats mProfilerStats;
+    // Is the current touch event sampled by the profiler.
+    private boolean mIsProfilingEvent = false;
+    
     /**
      * Builder: to create the {@link FloatView} instance.
      */
@@ -60,21 +79,14 @@ public class FloatView extends LinearLayout {
         // The view's parent view group.
         private ViewGroup mParentView;
         
-        // Window's moving direction.
-        @MoveDirection
-        private int mMoveDirection = MoveDirection.ANY_DIRECTION;
+        // Window's attributes, will be built to the configuration when create.
+        private final FloatWindowConfig.Builder mConfigBuilder = new FloatWindowConfig.Builder();
         
-        // Window's transparent, from 0f to 1f, which will convert to 0 - 255 as alpha.
-        @WindowTransparent
-        private float mWindowTransparent = WindowTransparent.MAX;
+        // Window's configuration shared with other float views, the attributes above will not work if set.
+        private FloatWindowConfig mConfig;
         
-        // Where the window's view created from.
-        @LayoutType
-        private int mLayoutType = LayoutType.ITSELF;
-        
-        // Window's size. It will not work if layout type set as the view itself.
-        private int mWindowWidth;
-        private int mWindowHeight;
+        // Key to retain the showing window when the activity recreated by configuration changes.
+        private String mRetainKey;
         
         public Builder(Context context, Class<? extends BaseFloatWindow> clazz) {
             this.mContext = context;
@@ -82,28 +94,39 @@ public class FloatView extends LinearLayout {
         }
         
         public Builder moveDirection(@MoveDirection int moveDirection) {
-            this.mMoveDirection = moveDirection;
+            mConfigBuilder.moveDirection(moveDirection);
             return this;
         }
         
         public Builder transparent(@WindowTransparent float windowTransparent) {
-            this.mWindowTransparent = windowTransparent;
+            mConfigBuilder.transparent(windowTransparent);
             return this;
         }
         
         public Builder layout(View windowView) {
             this.mWindowView = windowView;
-            this.mLayoutType = LayoutType.VIEW;
+            mConfigBuilder.layoutType(LayoutType.VIEW);
             return this;
         }
         
+        /**
+         * The view will be inflated when {@link #create()} called, or taken from the pool if
+         * {@link #viewPool(FloatWindowViewPool)} called.
+         */
         public Builder layout(@LayoutRes int layoutResId) {
             if (mContext == null) {
                 throw new RuntimeException("Context is null, can't create view instance from layout resource.");
             }
-            LayoutInflater inflater = LayoutInflater.from(mContext);
-            this.mWindowView = inflater.inflate(layoutResId, null, false);
-            this.mLayoutType = LayoutType.RESOURCE;
+            this.mWindowView = null;
+            mConfigBuilder.layout(layoutResId);
+            return this;
+        }
+        
+        /**
+         * Share the window's views through the pool, it will not work unless layout type set as resource.
+         */
+        public Builder viewPool(FloatWindowViewPool viewPool) {
+            mConfigBuilder.viewPool(viewPool);
             return this;
         }
         
@@ -116,7 +139,7 @@ public class FloatView extends LinearLayout {
          * It will not work if layout type set as the view itself.
          */
         public Builder windowWidth(int windowWidth) {
-            this.mWindowWidth = windowWidth;
+            mConfigBuilder.windowWidth(windowWidth);
             return this;
         }
         
@@ -124,21 +147,77 @@ public class FloatView extends LinearLayout {
          * It will not work if layout type set as the view itself.
          */
         public Builder windowHeight(int windowHeight) {
-            this.mWindowHeight = windowHeight;
+            mConfigBuilder.windowHeight(windowHeight);
+            return this;
+        }
+        
+        /**
+         * Override the surface configuration chosen by the window's content and transparent.
+         */
+        public Builder surfaceConfig(FloatWindowSurfaceConfig surfaceConfig) {
+            mConfigBuilder.surfaceConfig(surfaceConfig);
+            return this;
+        }
+        
+        /**
+         * Keep the view in parent view group as placeholder while the window is showing, the window shows a mirror of
+         * the view instead, so the parent view group doesn't need to layout again when pop up or dismiss. It will not
+         * work unless layout type set as the view itself.
+         */
+        public Builder keepPlaceholder() {
+            mConfigBuilder.keepPlaceholder();
+            return this;
+        }
+        
+        /**
+         * Set the window's size when collapsed to the icon, see {@link BaseFloatWindow#collapseWindow()}.
+         */
+        public Builder collapsedSize(int collapsedSize) {
+            mConfigBuilder.collapsedSize(collapsedSize);
+            return this;
+        }
+        
+        /**
+         * Dispatch the touch events of the drag without batching to vsync, so the window follows the finger with less
+         * latency. The window's position is still updated once per frame, no matter how many events received.
+         */
+        public Builder lowLatencyInput() {
+            mConfigBuilder.lowLatencyInput();
+            return this;
+        }
+        
+        /**
+         * Use the configuration shared with other float views, the window's attributes set by this builder will not
+         * work. For {@link LayoutType#VIEW}, the view still needs to be set by {@link #layout(View)}.
+         */
+        public Builder config(FloatWindowConfig config) {
+            this.mConfig = config;
+            return this;
+        }
+        
+        /**
+         * Retain the showing window when the activity recreated by configuration changes, e.g. rotation. The window
+         * keeps showing with it's position and state, and will be re-bound to the float view created with the same
+         * key by the recreated activity, instead of creating a new window.
+         */
+        public Builder retainKey(String retainKey) {
+            this.mRetainKey = retainKey;
             return this;
         }
         
         public FloatView create() {
-            if (mWindowWidth == 0 || mWindowHeight == 0) {
-                FloatWindowHelper.printInfoLog(
-                        "The value of window's width or height is 0, will create window by it's actual size.");
-                return new FloatView(mContext, mClazz, mMoveDirection, mWindowTransparent, mLayoutType, mWindowView,
-                        mParentView);
-            } else {
-                FloatWindowHelper.printInfoLog("Will create window by specified size.");
-                return new FloatView(mContext, mClazz, mMoveDirection, mWindowTransparent, mLayoutType, mWindowView,
-                        mParentView, mWindowWidth, mWindowHeight);
+            final FloatWindowConfig config = mConfig != null ? mConfig : mConfigBuilder.build();
+            
+            // Inflate the view directly if there's no pool to take it from.
+            // No need to inflate if the retained window will be re-bound, the view will be inflated when needed.
+            View windowView = config.getLayoutType() == LayoutType.VIEW ? mWindowView : null;
+            if (config.getLayoutType() == LayoutType.RESOURCE && config.getViewPool() == null &&
+                    !FloatWindowMemoryManager.getInstance().hasRetainedWindow(mRetainKey)) {
+                LayoutInflater inflater = LayoutInflater.from(mContext);
+                windowView = inflater.inflate(config.getLayoutResId(), null, false);
             }
+            
+            return new FloatView(mContext, mClazz, config, windowView, mParentView, mRetainKey);
         }
     }
     
@@ -149,23 +228,15 @@ public class FloatView extends LinearLayout {
         throw new RuntimeException("Not support create instance thought layout files.");
     }
     
-    private FloatView(Context context, Class<? extends BaseFloatWindow> clazz, @MoveDirection int moveDirection,
-            @WindowTransparent float windowTransparent, @LayoutType int layoutType, View windowView,
-            ViewGroup parentView) {
-        super(context);
-        
-        // Initialize view without specified window size.
-        initialize(context, clazz, moveDirection, windowTransparent, layoutType, windowView, parentView, 0, 0);
-    }
-    
-    private FloatView(Context context, Class<? extends BaseFloatWindow> clazz, @MoveDirection int moveDirection,
-            @WindowTransparent float windowTransparent, @LayoutType int layoutType, View windowView,
-            ViewGroup parentView, int windowWidth, int windowHeight) {
+    private FloatView(Context context, Class<? extends BaseFloatWindow> clazz, FloatWindowConfig config,
+            View windowView, ViewGroup parentView, String retainKey) {
         super(context);
         
-        // Initialize view with window size.
-        initialize(context, clazz, moveDirection, windowTransparent, layoutType, windowView, parentView, windowWidth,
-                windowHeight);
+        initialize(context, clazz, config, windowView, parentView, retainKey);
+        // Allocate the counters now, sampling the touch events doesn't allocate anything.
+        if (mFloatWindow != null) {
+            mProfilerStats = FloatWindowProfiler.getInstance().obtainStats(mFloatWindow.getClass());
+        }
     }
     
     @Override
@@ -175,6 +246,10 @@ public class FloatView extends LinearLayout {
             int mViewWidth = r - l;
             int mViewHeight = b - t;
             setWindowSize(mViewWidth, mViewHeight);
+            // The mirror in the window follows the placeholder's size.
+            if (isMirrorShowing()) {
+                mFloatWindow.updateWindowLayout();
+            }
         }
         // If layout has changed, update the float view's margin.
         if (changed) {
@@ -186,10 +261,9 @@ public class FloatView extends LinearLayout {
     /**
      * Initialize the view.
      */
-    private void initialize(Context context, Class<? extends BaseFloatWindow> clazz, @MoveDirection int moveDirection,
-            @WindowTransparent float windowTransparent, @LayoutType int layoutType, View windowView,
-            ViewGroup parentView,
-            int windowWidth, int windowHeight) {
+    private void initialize(Context context, Class<? extends BaseFloatWindow> clazz, FloatWindowConfig config,
+            View windowView, ViewGroup parentView, String retainKey) {
+        @LayoutType final int layoutType = config.getLayoutType();
         if (layoutType == LayoutType.ITSELF && parentView == null) {
             throw new RuntimeException("Please call the method parent() to set the view itself as the window's layout");
         }
@@ -199,6 +273,16 @@ public class FloatView extends LinearLayout {
             return;
         }
         
+        // Re-bind the window retained from the destroyed activity, no need to create it again.
+        final BaseFloatWindow retainedWindow = FloatWindowMemoryManager.getInstance().claimRetainedWindow(retainKey);
+        if (retainedWindow != null) {
+            mFloatWindow = retainedWindow;
+            mFloatWindow.rebind(context, this, windowView, parentView);
+            FloatWindowMemoryManager.getInstance().register(context, mFloatWindow);
+            mIsNeedLayout = !config.hasWindowSize();
+            return;
+        }
+        
         // Create instance.
         try {
             mFloatWindow = clazz.newInstance();
@@ -206,30 +290,49 @@ public class FloatView extends LinearLayout {
             FloatWindowHelper.printErrorLog("Create instance failed, error: " + e.getMessage());
         }
         
+        // Set other values.
+        mFloatWindow.mConfig = config;
+        mFloatWindow.mWeakRefContext = new WeakReference<>(context);
+        mFloatWindow.mLayoutResId = config.getLayoutResId();
+        mFloatWindow.mViewPool = config.getViewPool();
+        mFloatWindow.mSurfaceConfigOverride = config.getSurfaceConfig();
+        mFloatWindow.mCollapsedSize = config.getCollapsedSize();
+        mFloatWindow.mRetainKey = retainKey;
+        mFloatWindow.mIsLowLatencyInput = config.isLowLatencyInput();
+        
         // Set the window's layout.
+        // The view from the pool is taken after the window created, so the bind hook sees the whole window.
+        final boolean isAcquiringFromPool = layoutType != LayoutType.ITSELF && windowView == null &&
+                mFloatWindow.mViewPool != null;
         if (layoutType == LayoutType.ITSELF) {
             mFloatWindow.mWindowView = this;
-        } else {
+        } else if (!isAcquiringFromPool) {
             mFloatWindow.mWindowView = windowView;
         }
+        // Keep the view itself in parent view group, and show the mirror in the window.
+        if (config.isKeepPlaceholder()) {
+            mFloatWindow.mPlaceholderView = this;
+            // The mirror may outlive the activity when the window is retained, don't hold the activity.
+            mFloatWindow.mWindowView = new FloatViewMirror(context.getApplicationContext(), this);
+        }
         
-        // Set other values.
-        mFloatWindow.mWeakRefContext = new WeakReference<>(context);
-        mFloatWindow.mMoveDirection = moveDirection;
+        mFloatWindow.mMoveDirection = config.getMoveDirection();
         mFloatWindow.mFirstDirection = FirstDirection.NO_DIRECTION;
         mFloatWindow.mParentView = parentView;
         mFloatWindow.mLayoutType = layoutType;
         
-        // On window create.
+        // On window create, the LayoutParams is copied from the configuration with transparent and size.
         mFloatWindow.onWindowCreate();
-        // Set window's transparent.
-        mFloatWindow.updateWindowTransparent(windowTransparent);
+        if (isAcquiringFromPool) {
+            mFloatWindow.acquireWindowView();
+        }
+        // Release the window's resources along with the activity's lifecycle and the memory pressure.
+        FloatWindowMemoryManager.getInstance().register(context, mFloatWindow);
         
         // Set window's size.
         // It will not work if layout type set as the view itself.
-        if (windowWidth != 0 && windowHeight != 0 && layoutType != LayoutType.ITSELF) {
+        if (config.hasWindowSize()) {
             FloatWindowHelper.printInfoLog("Set window's size by specified size.");
-            setWindowSize(windowWidth, windowHeight);
             mIsNeedLayout = false;
         } else {
             FloatWindowHelper.printInfoLog("Set window's size by it's actual size.");
@@ -239,11 +342,43 @@ public class FloatView extends LinearLayout {
     
     @Override
     public boolean dispatchTouchEvent(MotionEvent event) {
+        // The window popped up while handling the event is under the user's finger, it will be attached immediately.
+        // It includes the hooks called by super, e.g. doOnTouchEvent().
+        final boolean wasHandlingTouch = mFloatWindow.mIsHandlingTouch;
+        mFloatWindow.mIsHandlingTouch = true;
+        try {
+            return handleDispatchTouchEvent(event);
+        } finally {
+            mFloatWindow.mIsHandlingTouch = wasHandlingTouch;
+        }
+    }
+    
+    private boolean handleDispatchTouchEvent(MotionEvent event) {
+        // Receive the events of this gesture without batching.
+        if (mFloatWindow.mIsLowLatencyInput && event.getActionMasked() == MotionEvent.ACTION_DOWN) {
+            FloatWindowHelper.requestUnbufferedDispatch(this, event);
+        }
+        
+        // Sample the event, also used by onInterceptTouchEvent() and onTouchEvent() called by super.
+        final FloatWindowProfiler profiler = FloatWindowProfiler.getInstance();
+        mIsProfilingEvent = mProfilerStats != null && profiler.shouldSample();
+        
         // Do sth. before dispatch event been called.
         mFloatWindow.doBeforeOnDispatchEvent(event);
         
         // Call the method override by the instance class.
-        int result = mFloatWindow.doOnDispatchEvent(event);
+        final boolean isProfiling = mIsProfilingEvent;
+        if (isProfiling) {
+            profiler.beginHook(mProfilerStats, ProfiledHook.DISPATCH);
+        }
+        int result;
+        try {
+            result = mFloatWindow.doOnDispatchEvent(event);
+        } finally {
+            if (isProfiling) {
+                profiler.endHook(mProfilerStats, ProfiledHook.DISPATCH);
+            }
+        }
         
         // Do sth. after dispatch event been called.
         mFloatWindow.doAfterOnDispatchEvent(event);
@@ -264,7 +399,18 @@ public class FloatView extends LinearLayout {
     @Override
     public boolean onInterceptTouchEvent(MotionEvent event) {
         // Call the method override by the instance class.
-        int result = mFloatWindow.doOnInterceptTouchEvent(event);
+        final boolean isProfiling = mIsProfilingEvent;
+        if (isProfiling) {
+            FloatWindowProfiler.getInstance().beginHook(mProfilerStats, ProfiledHook.INTERCEPT);
+        }
+        int result;
+        try {
+            result = mFloatWindow.doOnInterceptTouchEvent(event);
+        } finally {
+            if (isProfiling) {
+                FloatWindowProfiler.getInstance().endHook(mProfilerStats, ProfiledHook.INTERCEPT);
+            }
+        }
         // Return different value according to the result.
         switch (result) {
             case EventResult.TRUE:
@@ -281,7 +427,18 @@ public class FloatView extends LinearLayout {
     @Override
     public boolean onTouchEvent(MotionEvent event) {
         // Call the method override by the instance class.
-        int result = mFloatWindow.doOnTouchEvent(event);
+        final boolean isProfiling = mIsProfilingEvent;
+        if (isProfiling) {
+            FloatWindowProfiler.getInstance().beginHook(mProfilerStats, ProfiledHook.TOUCH);
+        }
+        int result;
+        try {
+            result = mFloatWindow.doOnTouchEvent(event);
+        } finally {
+            if (isProfiling) {
+                FloatWindowProfiler.getInstance().endHook(mProfilerStats, ProfiledHook.TOUCH);
+            }
+        }
         // Return different value according to the result.
         switch (result) {
             case EventResult.TRUE:
@@ -295,10 +452,83 @@ public class FloatView extends LinearLayout {
         }
     }
     
+    /**
+     * Get the surface configuration of the window, see {@link BaseFloatWindow#getSurfaceConfig()}.
+     */
+    public FloatWindowSurfaceConfig getSurfaceConfig() {
+        return mFloatWindow.getSurfaceConfig();
+    }
+    
+    /**
+     * Get the thread-safe command API of the window, which can be called on any thread.
+     */
+    public FloatWindowCommander getCommander() {
+        return mFloatWindow.getCommander();
+    }
+    
+    /**
+     * Is the touch events dispatched without batching, see {@link Builder#lowLatencyInput()}.
+     */
+    boolean isLowLatencyInput() {
+        return mFloatWindow != null && mFloatWindow.mIsLowLatencyInput;
+    }
+    
+    /**
+     * Open the high-rate content update channel of the window, see {@link FloatWindowContentChannel}.
+     */
+    public <T> FloatWindowContentChannel<T> openContentChannel(FloatWindowContentChannel.Binder<T> binder) {
+        return mFloatWindow.openContentChannel(binder);
+    }
+    
+    @Override
+    public ViewParent invalidateChildInParent(int[] location, Rect dirty) {
+        // The content changed, draw the mirror in the window again.
+        if (isMirrorShowing()) {
+            mFloatWindow.mWindowView.invalidate();
+        }
+        return super.invalidateChildInParent(location, dirty);
+    }
+    
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        // Since Oreo, the invalidation skips invalidateChildInParent() with hardware acceleration, but it still marks
+        // this view dirty and triggers the traversal, while this view is invisible and not drawn by the parent.
+        getViewTreeObserver().addOnPreDrawListener(mMirrorUpdater);
+    }
+    
+    @Override
+    protected void onDetachedFromWindow() {
+        getViewTreeObserver().removeOnPreDrawListener(mMirrorUpdater);
+        super.onDetachedFromWindow();
+    }
+    
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        // The mirror has the same size as this view.
+        if (mFloatWindow != null && mFloatWindow.mPlaceholderView == this && mFloatWindow.mWindowView != null) {
+            mFloatWindow.mWindowView.requestLayout();
+            mFloatWindow.mWindowView.invalidate();
+        }
+    }
+    
+    /**
+     * Is the mirror of this view showing in the window, see {@link Builder#keepPlaceholder()}.
+     */
+    private boolean isMirrorShowing() {
+        return mFloatWindow != null && mFloatWindow.mPlaceholderView == this && mFloatWindow.isWindowShowing() &&
+                mFloatWindow.mWindowView != null;
+    }
+    
     /**
      * Set window's size.
      */
     private void setWindowSize(int windowWidth, int windowHeight) {
+        // LayoutParams was released along with the activity.
+        if (mFloatWindow.mLayoutParams == null) {
+            return;
+        }
         mFloatWindow.mLayoutParams.width = windowWidth;
         mFloatWindow.mLayoutParams.height = windowHeight;
         FloatWindowHelper.printInfoLog(
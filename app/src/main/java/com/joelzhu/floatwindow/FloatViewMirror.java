@@ -0,0 +1,71 @@
+package com.joelzhu.floatwindow;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.view.MotionEvent;
+import android.view.View;
+
+/**
+ * Window's view when the {@link FloatView} keeps it's placeholder, see {@link FloatView.Builder#keepPlaceholder()}.
+ *
+ * The {@link FloatView} stays in it's parent view group as the placeholder, only turns invisible while the window is
+ * showing, so the parent never needs to layout again. This view shows in the window instead: it has the same size
+ * as the {@link FloatView}, draws the {@link FloatView}'s content, and sends the touch events back to it.
+ */
+final class FloatViewMirror extends View {
+    private FloatView mSourceView;
+    
+    FloatViewMirror(Context context, FloatView sourceView) {
+        super(context);
+        this.mSourceView = sourceView;
+    }
+    
+    /**
+     * Draw another view, when the window re-bound to the recreated activity.
+     */
+    void setSourceView(FloatView sourceView) {
+        this.mSourceView = sourceView;
+        requestLayout();
+        // Keep the last frame until the new view is laid out, it will draw this view again after that.
+        if (isSourceLaidOut()) {
+            invalidate();
+        }
+    }
+    
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        // Keep the last size until the new view is laid out.
+        if (!isSourceLaidOut()) {
+            setMeasuredDimension(getMeasuredWidth(), getMeasuredHeight());
+            return;
+        }
+        setMeasuredDimension(mSourceView.getWidth(), mSourceView.getHeight());
+    }
+    
+    private boolean isSourceLaidOut() {
+        return mSourceView.getWidth() > 0 && mSourceView.getHeight() > 0;
+    }
+    
+    @Override
+    protected void onDraw(Canvas canvas) {
+        // Draw the content directly, it works even if the source view is invisible.
+        mSourceView.draw(canvas);
+    }
+    
+    @Override
+    public boolean isOpaque() {
+        return mSourceView.isOpaque();
+    }
+    
+    @Override
+    public boolean dispatchTouchEvent(MotionEvent event) {
+        // The events are received by this view's window, request here instead of the source view.
+        if (mSourceView.isLowLatencyInput() && event.getActionMasked() == MotionEvent.ACTION_DOWN) {
+            FloatWindowHelper.requestUnbufferedDispatch(this, event);
+        }
+        final boolean result = mSourceView.dispatchTouchEvent(event);
+        // The pressed state of the content may be changed.
+        invalidate();
+        return result;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,224 @@
+package com.joelzhu.floatwindow;
+
+import android.view.Choreographer;
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.PriorityQueue;
+
+/**
+ * Spread the windows' attaching across frames, when lots of windows pop up at the same time.
+ *
+ * {@link BaseFloatWindow#popupWindow(int, int)} attaches the window immediately, while the time spent on attaching
+ * in the current frame is within the budget. Otherwise the window is queued, and attached in the following frames,
+ * the higher {@link BaseFloatWindow#getAttachPriority()} first, then the earlier one first. The window popped up
+ * while handling the touch event, which is the window under the user's finger, is never queued.
+ *
+ * Most of the cost is the window's first measure and layout, which happens in the traversal after attached, in the
+ * same frame. So besides the time spent on attaching, every attached window charges the estimated cost of it's first
+ * traversal to the budget. The estimate is updated by measuring the first traversal of each attached window.
+ *
+ * All the methods must be called on the UI thread.
+ */
+public final class FloatWindowAttachScheduler {
+    // Default time budget of attaching windows per frame.
+    public static final long DEFAULT_FRAME_BUDGET_NANOS = 4000000L;
+    // Estimated cost of the window's first traversal, before any window measured.
+    private static final long DEFAULT_TRAVERSAL_NANOS = 2000000L;
+    
+    private static FloatWindowAttachScheduler sInstance;
+    
+    // Queued windows, the higher priority first, then the earlier one first.
+    private final PriorityQueue<Request> mPendingRequests = new PriorityQueue<>(8, new Comparator<Request>() {
+        @Override
+        public int compare(Request lhs, Request rhs) {
+            if (lhs.mPriority != rhs.mPriority) {
+                return lhs.mPriority > rhs.mPriority ? -1 : 1;
+            }
+            return lhs.mSequence < rhs.mSequence ? -1 : (lhs.mSequence == rhs.mSequence ? 0 : 1);
+        }
+    });
+    
+    // Time budget of attaching windows per frame.
+    private long mFrameBudgetNanos = DEFAULT_FRAME_BUDGET_NANOS;
+    // Time spent on attaching windows in the current frame, including the estimated first traversals.
+    private long mSpentNanos;
+    // Estimated cost of the window's first traversal, the moving average of the measured ones.
+    private long mTraversalNanos = DEFAULT_TRAVERSAL_NANOS;
+    // Sequence of the requests, to keep the order of the same priority.
+    private long mSequence;
+    // Is the frame callback posted.
+    private boolean mIsFrameScheduled = false;
+    
+    private final Choreographer.FrameCallback mFrameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            mIsFrameScheduled = false;
+            // A new frame, the budget is available again.
+            mSpentNanos = 0;
+            // Attach at least one window per frame, so the queue always drains even with no budget.
+            if (!mPendingRequests.isEmpty()) {
+                do {
+                    attach(mPendingRequests.poll().mFloatWindow);
+                } while (!mPendingRequests.isEmpty() && mSpentNanos < mFrameBudgetNanos);
+            }
+            scheduleFrameIfNeeded();
+        }
+    };
+    
+    /**
+     * Measure the cost of the attached window's first traversal, from attached to the view tree's measure and layout
+     * done, right before drawing.
+     */
+    private final class TraversalMeter implements ViewTreeObserver.OnWindowAttachListener,
+            ViewTreeObserver.OnPreDrawListener {
+        private final View mView;
+        private long mStartNanos = 0;
+        
+        TraversalMeter(View view) {
+            this.mView = view;
+        }
+        
+        void start() {
+            // Listeners added before attached are merged into the window's observer when attached.
+            final ViewTreeObserver observer = mView.getViewTreeObserver();
+            observer.addOnWindowAttachListener(this);
+            observer.addOnPreDrawListener(this);
+        }
+        
+        @Override
+        public void onWindowAttached() {
+            mStartNanos = System.nanoTime();
+        }
+        
+        @Override
+        public void onWindowDetached() {
+            stop();
+        }
+        
+        @Override
+        public boolean onPreDraw() {
+            if (mStartNanos > 0) {
+                onTraversalMeasured(System.nanoTime() - mStartNanos);
+            }
+            stop();
+            return true;
+        }
+        
+        private void stop() {
+            final ViewTreeObserver observer = mView.getViewTreeObserver();
+            if (observer.isAlive()) {
+                observer.removeOnWindowAttachListener(this);
+                observer.removeOnPreDrawListener(this);
+            }
+        }
+    }
+    
+    /**
+     * Request of attaching the window.
+     */
+    private static final class Request {
+        final BaseFloatWindow mFloatWindow;
+        final int mPriority;
+        final long mSequence;
+        
+        Request(BaseFloatWindow floatWindow, int priority, long sequence) {
+            this.mFloatWindow = floatWindow;
+            this.mPriority = priority;
+            this.mSequence = sequence;
+        }
+    }
+    
+    private FloatWindowAttachScheduler() {
+    }
+    
+    public static FloatWindowAttachScheduler getInstance() {
+        if (sInstance == null) {
+            sInstance = new FloatWindowAttachScheduler();
+        }
+        return sInstance;
+    }
+    
+    /**
+     * Set the time budget of attaching windows per frame, 0 means attaching only one window per frame.
+     */
+    public void setFrameBudgetNanos(long frameBudgetNanos) {
+        if (frameBudgetNanos < 0) {
+            throw new IllegalArgumentException("Frame budget can't be negative, but was " + frameBudgetNanos);
+        }
+        this.mFrameBudgetNanos = frameBudgetNanos;
+    }
+    
+    public long getFrameBudgetNanos() {
+        return mFrameBudgetNanos;
+    }
+    
+    /**
+     * Get the count of the windows waiting to be attached.
+     */
+    public int getPendingCount() {
+        return mPendingRequests.size();
+    }
+    
+    /**
+     * Attach the window immediately if the budget of current frame is enough, or queue it.
+     *
+     * @param isImmediate Attach the window immediately whatever the budget is, e.g. it's under the user's finger.
+     */
+    void schedule(BaseFloatWindow floatWindow, boolean isImmediate) {
+        if (isImmediate || (mPendingRequests.isEmpty() && mSpentNanos < mFrameBudgetNanos)) {
+            attach(floatWindow);
+        } else {
+            mPendingRequests.add(new Request(floatWindow, floatWindow.getAttachPriority(), mSequence++));
+        }
+        scheduleFrameIfNeeded();
+    }
+    
+    /**
+     * Remove the window from the queue, e.g. it was dismissed before attached.
+     */
+    void cancel(BaseFloatWindow floatWindow) {
+        final Iterator<Request> iterator = mPendingRequests.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().mFloatWindow == floatWindow) {
+                iterator.remove();
+            }
+        }
+    }
+    
+    private void attach(BaseFloatWindow floatWindow) {
+        final long startNanos = System.nanoTime();
+        View attachedView;
+        try {
+            attachedView = floatWindow.attachWindow();
+        } catch (RuntimeException e) {
+            // E.g. the token is not valid or the overlay permission is not granted, don't crash the frame.
+            FloatWindowHelper.printErrorLog("Attach window failed, error: " + e.getMessage());
+            floatWindow.onAttachFailed();
+            attachedView = null;
+        }
+        mSpentNanos += System.nanoTime() - startNanos;
+        if (attachedView != null) {
+            // The first traversal comes later in this frame, charge the estimate now.
+            mSpentNanos += mTraversalNanos;
+            new TraversalMeter(attachedView).start();
+        }
+    }
+    
+    private void onTraversalMeasured(long traversalNanos) {
+        mTraversalNanos = (mTraversalNanos * 3 + traversalNanos) / 4;
+    }
+    
+    /**
+     * Post the frame callback, to attach the queued windows, or to reset the budget.
+     */
+    private void scheduleFrameIfNeeded() {
+        if (mIsFrameScheduled || (mPendingRequests.isEmpty() && mSpentNanos == 0)) {
+            return;
+        }
+        Choreographer.getInstance().postFrameCallback(mFrameCallback);
+        mIsFrameScheduled = true;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,122 @@
+package com.joelzhu.floatwindow;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded lock-free queue of {@link WindowCommand}, multiple producers and single consumer.
+ *
+ * Commands are stored in preallocated primitive slots, so posting a command never allocates. Every slot carries a
+ * sequence number: producers claim a slot by CAS on the tail, write the arguments, then publish the slot by
+ * advancing it's sequence. The single consumer (the UI thread) reads the published slots in order and releases
+ * them for the next round.
+ */
+final class FloatWindowCommandQueue {
+    // Capacity, always the power of 2.
+    private final int mCapacity;
+    private final int mMask;
+    
+    // Sequence of each slot.
+    private final AtomicLongArray mSequences;
+    
+    // Slot contents.
+    private final int[] mTypes;
+    private final int[] mFirstArgs;
+    private final int[] mSecondArgs;
+    private final float[] mFloatArgs;
+    
+    // Next position to be claimed by producers.
+    private final AtomicLong mTail = new AtomicLong(0);
+    // Next position to be read by the consumer, only accessed by the consumer.
+    private long mHead = 0;
+    
+    /**
+     * Holder of the polled command, reused by the consumer.
+     */
+    static final class Command {
+        @WindowCommand
+        int type;
+        int firstArg;
+        int secondArg;
+        float floatArg;
+    }
+    
+    FloatWindowCommandQueue(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive, but was " + capacity);
+        }
+        // Round the capacity up to the power of 2.
+        int actualCapacity = Integer.highestOneBit(capacity);
+        if (actualCapacity < capacity) {
+            actualCapacity <<= 1;
+        }
+        
+        mCapacity = actualCapacity;
+        mMask = actualCapacity - 1;
+        mSequences = new AtomicLongArray(actualCapacity);
+        for (int i = 0; i < actualCapacity; i++) {
+            mSequences.set(i, i);
+        }
+        mTypes = new int[actualCapacity];
+        mFirstArgs = new int[actualCapacity];
+        mSecondArgs = new int[actualCapacity];
+        mFloatArgs = new float[actualCapacity];
+    }
+    
+    /**
+     * Post a command, can be called on any thread.
+     *
+     * @return False if the queue is full, the command will be dropped.
+     */
+    boolean offer(@WindowCommand int type, int firstArg, int secondArg, float floatArg) {
+        while (true) {
+            final long tail = mTail.get();
+            final int index = (int) (tail & mMask);
+            final long sequence = mSequences.get(index);
+            
+            // Slot is free, try to claim it.
+            if (sequence == tail) {
+                if (mTail.compareAndSet(tail, tail + 1)) {
+                    mTypes[index] = type;
+                    mFirstArgs[index] = firstArg;
+                    mSecondArgs[index] = secondArg;
+                    mFloatArgs[index] = floatArg;
+                    // Publish the slot to the consumer.
+                    mSequences.lazySet(index, tail + 1);
+                    return true;
+                }
+            }
+            // Slot is still held by the consumer from the last round, the queue is full.
+            else if (sequence < tail) {
+                return false;
+            }
+            // Otherwise, another producer claimed the slot first, try again.
+        }
+    }
+    
+    /**
+     * Poll the oldest command into the holder. Must be called on the consumer thread only.
+     *
+     * @return False if there's no published command.
+     */
+    boolean poll(Command command) {
+        final long head = mHead;
+        final int index = (int) (head & mMask);
+        if (mSequences.get(index) != head + 1) {
+            return false;
+        }
+        
+        command.type = mTypes[index];
+        command.firstArg = mFirstArgs[index];
+        command.secondArg = mSecondArgs[index];
+        command.floatArg = mFloatArgs[index];
+        // Release the slot for the next round.
+        mSequences.lazySet(index, head + mCapacity);
+        mHead = head + 1;
+        return true;
+    }
+    
+    int getCapacity() {
+        return mCapacity;
+    }
+}
\ No newline at end of file
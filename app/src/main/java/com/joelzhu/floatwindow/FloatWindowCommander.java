@@ -0,0 +1,197 @@
+package com.joelzhu.floatwindow;
+
+/**
+ * Thread-safe command API of the {@link BaseFloatWindow}.
+ *
+ * The operations in {@link BaseFloatWindow} must be called on the UI thread. The methods in this class can be called
+ * on any thread: the commands are posted into a bounded lock-free {@link FloatWindowCommandQueue}, and the UI thread
+ * drains the queue once per frame. Redundant commands in the same frame are collapsed, so the window's layout is
+ * updated at most once per frame, no matter how many moves or transparent updates were posted.
+ *
+ * Here's the simplified sample code:
+ * FloatWindowCommander commander = mFloatView.getCommander();
+ * // On any thread.
+ * commander.moveTo(x, y);
+ * commander.transparent(0.5f);
+ */
+public final class FloatWindowCommander {
+    // Default capacity of the command queue.
+    static final int DEFAULT_CAPACITY = 64;
+    
+    private final BaseFloatWindow mFloatWindow;
+    private final FloatWindowCommandQueue mQueue;
+    
+    // Drain the queue on the next frame.
+    private final FloatWindowFrameTrigger mDrainTrigger = new FloatWindowFrameTrigger(
+            new FloatWindowFrameTrigger.Callback() {
+                @Override
+                public void onFrame(long frameTimeNanos) {
+                    drain();
+                }
+            });
+    
+    // Command holder, only accessed on the UI thread.
+    private final FloatWindowCommandQueue.Command mCommand = new FloatWindowCommandQueue.Command();
+    
+    // Pending changes collapsed in the current drain, only accessed on the UI thread.
+    private boolean mHasPendingPosition;
+    private int mPendingX;
+    private int mPendingY;
+    private int mPendingDeltaX;
+    private int mPendingDeltaY;
+    private boolean mHasPendingTransparent;
+    private float mPendingTransparent;
+    
+    FloatWindowCommander(BaseFloatWindow floatWindow, int capacity) {
+        this.mFloatWindow = floatWindow;
+        this.mQueue = new FloatWindowCommandQueue(capacity);
+    }
+    
+    /**
+     * Pop up the window at coordinates(args1, args2), see {@link BaseFloatWindow#popupWindow(int, int)}.
+     *
+     * @return False if the queue is full and the command was dropped.
+     */
+    public boolean popup(int layoutX, int layoutY) {
+        return post(WindowCommand.POPUP, layoutX, layoutY, 0f);
+    }
+    
+    /**
+     * Pop up the window from the origin view's position, see {@link BaseFloatWindow#popupWindowFromOrigin()}.
+     *
+     * @return False if the queue is full and the command was dropped.
+     */
+    public boolean popupFromOrigin() {
+        return post(WindowCommand.POPUP_FROM_ORIGIN, 0, 0, 0f);
+    }
+    
+    /**
+     * Move the window to coordinates(args1, args2) on screen, the moving direction is ignored. Only the last one in a
+     * frame works.
+     *
+     * @return False if the queue is full and the command was dropped.
+     */
+    public boolean moveTo(int layoutX, int layoutY) {
+        return post(WindowCommand.MOVE_TO, layoutX, layoutY, 0f);
+    }
+    
+    /**
+     * Move the window by distance deltaX on X-Axis and deltaY on Y-Axis, see
+     * {@link BaseFloatWindow#moveWindow(int, int)}. The distances in a frame are summed up.
+     *
+     * @return False if the queue is full and the command was dropped.
+     */
+    public boolean moveBy(int deltaX, int deltaY) {
+        return post(WindowCommand.MOVE_BY, deltaX, deltaY, 0f);
+    }
+    
+    /**
+     * Update the window's transparent. Only the last one in a frame works.
+     *
+     * @return False if the queue is full and the command was dropped.
+     */
+    public boolean transparent(@WindowTransparent float transparent) {
+        return post(WindowCommand.TRANSPARENT, 0, 0, transparent);
+    }
+    
+    /**
+     * Dismiss the window, see {@link BaseFloatWindow#dismissWindow()}.
+     *
+     * @return False if the queue is full and the command was dropped.
+     */
+    public boolean dismiss() {
+        return post(WindowCommand.DISMISS, 0, 0, 0f);
+    }
+    
+    /**
+     * Post the command into the queue, and schedule a drain if there isn't one.
+     */
+    private boolean post(@WindowCommand int type, int firstArg, int secondArg, float floatArg) {
+        if (!mQueue.offer(type, firstArg, secondArg, floatArg)) {
+            return false;
+        }
+        mDrainTrigger.schedule();
+        return true;
+    }
+    
+    /**
+     * Drain the queue on the UI thread, collapse the redundant commands and apply them.
+     */
+    private void drain() {
+        while (mQueue.poll(mCommand)) {
+            switch (mCommand.type) {
+                case WindowCommand.POPUP:
+                    // Pending changes must be applied before pop up, so the window shows with them.
+                    flushPending();
+                    if (!mFloatWindow.isWindowShowing()) {
+                        mFloatWindow.popupWindow(mCommand.firstArg, mCommand.secondArg);
+                    }
+                    break;
+                
+                case WindowCommand.POPUP_FROM_ORIGIN:
+                    flushPending();
+                    if (!mFloatWindow.isWindowShowing()) {
+                        mFloatWindow.popupWindowFromOrigin();
+                    }
+                    break;
+                
+                case WindowCommand.MOVE_TO:
+                    // The last position wins, and the distances before it are meaningless.
+                    mHasPendingPosition = true;
+                    mPendingX = mCommand.firstArg;
+                    mPendingY = mCommand.secondArg;
+                    mPendingDeltaX = 0;
+                    mPendingDeltaY = 0;
+                    break;
+                
+                case WindowCommand.MOVE_BY:
+                    mPendingDeltaX += mCommand.firstArg;
+                    mPendingDeltaY += mCommand.secondArg;
+                    break;
+                
+                case WindowCommand.TRANSPARENT:
+                    mHasPendingTransparent = true;
+                    mPendingTransparent = mCommand.floatArg;
+                    break;
+                
+                case WindowCommand.DISMISS:
+                    flushPending();
+                    if (mFloatWindow.isWindowShowing()) {
+                        mFloatWindow.dismissWindow();
+                    }
+                    break;
+            }
+        }
+        
+        flushPending();
+    }
+    
+    /**
+     * Apply the collapsed changes with only one layout update.
+     */
+    private void flushPending() {
+        if (!mHasPendingPosition && mPendingDeltaX == 0 && mPendingDeltaY == 0 && !mHasPendingTransparent) {
+            return;
+        }
+        
+        if (mFloatWindow.mLayoutParams == null) {
+            FloatWindowHelper.printErrorLog("LayoutParams is null.");
+        } else {
+            if (mHasPendingPosition) {
+                mFloatWindow.setLayoutPosition(mPendingX, mPendingY);
+            }
+            if (mPendingDeltaX != 0 || mPendingDeltaY != 0) {
+                mFloatWindow.offsetLayoutPosition(mPendingDeltaX, mPendingDeltaY);
+            }
+            if (mHasPendingTransparent) {
+                mFloatWindow.mLayoutParams.alpha = mPendingTransparent;
+            }
+            mFloatWindow.updateWindowLayout();
+        }
+        
+        mHasPendingPosition = false;
+        mPendingDeltaX = 0;
+        mPendingDeltaY = 0;
+        mHasPendingTransparent = false;
+    }
+}
\ No newline at end of file
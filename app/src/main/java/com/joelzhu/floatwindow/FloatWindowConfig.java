@@ -0,0 +1,260 @@
+package com.joelzhu.floatwindow;
+
+import android.graphics.PixelFormat;
+import android.support.annotation.LayoutRes;
+import android.view.WindowManager;
+import android.view.WindowManager.LayoutParams;
+
+/**
+ * Immutable configuration of the float window, can be shared by many {@link FloatView}s.
+ *
+ * The configuration is validated once when built, and the {@link LayoutParams} of the windows are copied from the
+ * template prebuilt here, instead of set field by field for every window. So creating lots of identical float views,
+ * e.g. in the list, costs less.
+ *
+ * Here's the simplified sample code:
+ * FloatWindowConfig config = new FloatWindowConfig.Builder()
+ * .layout([Layout resource id])
+ * .moveDirection({@link MoveDirection})
+ * .transparent({@link Float})
+ * .build();
+ * FloatView mFloatView = new FloatView.Builder(this, [The class extends {@link BaseFloatWindow}].class)
+ * .config(config)
+ * .create();
+ */
+public final class FloatWindowConfig {
+    @MoveDirection
+    private final int mMoveDirection;
+    @WindowTransparent
+    private final float mWindowTransparent;
+    @LayoutType
+    private final int mLayoutType;
+    @LayoutRes
+    private final int mLayoutResId;
+    private final FloatWindowViewPool mViewPool;
+    private final int mWindowWidth;
+    private final int mWindowHeight;
+    private final FloatWindowSurfaceConfig mSurfaceConfig;
+    private final boolean mIsKeepPlaceholder;
+    private final int mCollapsedSize;
+    private final boolean mIsLowLatencyInput;
+    
+    // Template of the window's LayoutParams, never handed out.
+    private final WindowManager.LayoutParams mLayoutParamsTemplate;
+    
+    /**
+     * Builder: to create the {@link FloatWindowConfig} instance.
+     */
+    public static final class Builder {
+        @MoveDirection
+        private int mMoveDirection = MoveDirection.ANY_DIRECTION;
+        @WindowTransparent
+        private float mWindowTransparent = WindowTransparent.MAX;
+        @LayoutType
+        private int mLayoutType = LayoutType.ITSELF;
+        @LayoutRes
+        private int mLayoutResId;
+        private FloatWindowViewPool mViewPool;
+        private int mWindowWidth;
+        private int mWindowHeight;
+        private FloatWindowSurfaceConfig mSurfaceConfig;
+        private boolean mIsKeepPlaceholder = false;
+        private int mCollapsedSize;
+        private boolean mIsLowLatencyInput = false;
+        
+        public Builder moveDirection(@MoveDirection int moveDirection) {
+            this.mMoveDirection = moveDirection;
+            return this;
+        }
+        
+        public Builder transparent(@WindowTransparent float windowTransparent) {
+            this.mWindowTransparent = windowTransparent;
+            return this;
+        }
+        
+        /**
+         * Set the layout type, the view itself by default. For {@link LayoutType#VIEW}, the view is set by
+         * {@link FloatView.Builder#layout(android.view.View)} for every float view.
+         */
+        public Builder layoutType(@LayoutType int layoutType) {
+            this.mLayoutType = layoutType;
+            return this;
+        }
+        
+        /**
+         * Set the layout resource, and the layout type as {@link LayoutType#RESOURCE}.
+         */
+        public Builder layout(@LayoutRes int layoutResId) {
+            this.mLayoutResId = layoutResId;
+            this.mLayoutType = LayoutType.RESOURCE;
+            return this;
+        }
+        
+        /**
+         * See {@link FloatView.Builder#viewPool(FloatWindowViewPool)}.
+         */
+        public Builder viewPool(FloatWindowViewPool viewPool) {
+            this.mViewPool = viewPool;
+            return this;
+        }
+        
+        /**
+         * It will not work if layout type set as the view itself.
+         */
+        public Builder windowWidth(int windowWidth) {
+            this.mWindowWidth = windowWidth;
+            return this;
+        }
+        
+        /**
+         * It will not work if layout type set as the view itself.
+         */
+        public Builder windowHeight(int windowHeight) {
+            this.mWindowHeight = windowHeight;
+            return this;
+        }
+        
+        /**
+         * See {@link FloatView.Builder#surfaceConfig(FloatWindowSurfaceConfig)}.
+         */
+        public Builder surfaceConfig(FloatWindowSurfaceConfig surfaceConfig) {
+            this.mSurfaceConfig = surfaceConfig;
+            return this;
+        }
+        
+        /**
+         * See {@link FloatView.Builder#keepPlaceholder()}.
+         */
+        public Builder keepPlaceholder() {
+            this.mIsKeepPlaceholder = true;
+            return this;
+        }
+        
+        /**
+         * See {@link FloatView.Builder#collapsedSize(int)}.
+         */
+        public Builder collapsedSize(int collapsedSize) {
+            this.mCollapsedSize = collapsedSize;
+            return this;
+        }
+        
+        /**
+         * See {@link FloatView.Builder#lowLatencyInput()}.
+         */
+        public Builder lowLatencyInput() {
+            this.mIsLowLatencyInput = true;
+            return this;
+        }
+        
+        public FloatWindowConfig build() {
+            if (mMoveDirection != MoveDirection.X_AXIS && mMoveDirection != MoveDirection.Y_AXIS &&
+                    mMoveDirection != MoveDirection.FIRST_DIRECTION && mMoveDirection != MoveDirection.ANY_DIRECTION) {
+                throw new IllegalArgumentException("Unknown move direction: " + mMoveDirection);
+            }
+            if (mWindowTransparent < WindowTransparent.MIN || mWindowTransparent > WindowTransparent.MAX) {
+                throw new IllegalArgumentException("Transparent must be from 0f to 1f, but was " + mWindowTransparent);
+            }
+            if (mLayoutType != LayoutType.ITSELF && mLayoutType != LayoutType.VIEW &&
+                    mLayoutType != LayoutType.RESOURCE) {
+                throw new IllegalArgumentException("Unknown layout type: " + mLayoutType);
+            }
+            if (mLayoutType == LayoutType.RESOURCE && mLayoutResId == 0) {
+                throw new IllegalArgumentException("Layout resource is not set.");
+            }
+            if (mWindowWidth < 0 || mWindowHeight < 0 || mCollapsedSize < 0) {
+                throw new IllegalArgumentException("Window's size can't be negative.");
+            }
+            return new FloatWindowConfig(this);
+        }
+    }
+    
+    private FloatWindowConfig(Builder builder) {
+        this.mMoveDirection = builder.mMoveDirection;
+        this.mWindowTransparent = builder.mWindowTransparent;
+        this.mLayoutType = builder.mLayoutType;
+        this.mLayoutResId = builder.mLayoutResId;
+        this.mViewPool = builder.mLayoutType == LayoutType.RESOURCE ? builder.mViewPool : null;
+        this.mWindowWidth = builder.mWindowWidth;
+        this.mWindowHeight = builder.mWindowHeight;
+        this.mSurfaceConfig = builder.mSurfaceConfig;
+        this.mIsKeepPlaceholder = builder.mIsKeepPlaceholder && builder.mLayoutType == LayoutType.ITSELF;
+        this.mCollapsedSize = builder.mCollapsedSize;
+        this.mIsLowLatencyInput = builder.mIsLowLatencyInput;
+        
+        // Prebuild the LayoutParams.
+        mLayoutParamsTemplate = new WindowManager.LayoutParams();
+        // Make this window transparent, the format will be chosen again when pop up.
+        mLayoutParamsTemplate.format = PixelFormat.RGBA_8888;
+        // Make this window above all the other applications.
+        mLayoutParamsTemplate.type = FloatWindowSurfaceConfig.getDefaultWindowType();
+        mLayoutParamsTemplate.alpha = mWindowTransparent;
+        if (hasWindowSize()) {
+            mLayoutParamsTemplate.width = mWindowWidth;
+            mLayoutParamsTemplate.height = mWindowHeight;
+        }
+    }
+    
+    /**
+     * Create the window's LayoutParams, copied from the template.
+     */
+    WindowManager.LayoutParams newLayoutParams() {
+        WindowManager.LayoutParams layoutParams = new WindowManager.LayoutParams();
+        layoutParams.copyFrom(mLayoutParamsTemplate);
+        return layoutParams;
+    }
+    
+    /**
+     * Is the window's size specified, it will not work if layout type set as the view itself.
+     */
+    boolean hasWindowSize() {
+        return mWindowWidth != 0 && mWindowHeight != 0 && mLayoutType != LayoutType.ITSELF;
+    }
+    
+    @MoveDirection
+    public int getMoveDirection() {
+        return mMoveDirection;
+    }
+    
+    @WindowTransparent
+    public float getWindowTransparent() {
+        return mWindowTransparent;
+    }
+    
+    @LayoutType
+    public int getLayoutType() {
+        return mLayoutType;
+    }
+    
+    @LayoutRes
+    public int getLayoutResId() {
+        return mLayoutResId;
+    }
+    
+    public FloatWindowViewPool getViewPool() {
+        return mViewPool;
+    }
+    
+    public int getWindowWidth() {
+        return mWindowWidth;
+    }
+    
+    public int getWindowHeight() {
+        return mWindowHeight;
+    }
+    
+    public FloatWindowSurfaceConfig getSurfaceConfig() {
+        return mSurfaceConfig;
+    }
+    
+    public boolean isKeepPlaceholder() {
+        return mIsKeepPlaceholder;
+    }
+    
+    public int getCollapsedSize() {
+        return mCollapsedSize;
+    }
+    
+    public boolean isLowLatencyInput() {
+        return mIsLowLatencyInput;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,122 @@
+package com.joelzhu.floatwindow;
+
+import android.view.View;
+
+/**
+ * High-rate content update channel of the {@link BaseFloatWindow}.
+ *
+ * Producers write the content into a state object instead of updating the window's view directly, and the window
+ * applies only the latest snapshot to the view once per frame. So hundreds of updates per second cost at most one bind
+ * per frame, and the layout pass only happens when {@link Binder#bindState(View, Object)} reports that the size
+ * really changed.
+ *
+ * The state is triple buffered between the producers and the UI thread, see {@link FloatWindowTripleBuffer}. The UI
+ * thread never waits for the producers. Producers are serialized with each other.
+ *
+ * Here's the simplified sample code:
+ * FloatWindowContentChannel<Counter> channel = mFloatView.openContentChannel([The implementation of Binder]);
+ * // On any thread.
+ * Counter counter = channel.beginWrite();
+ * try {
+ *     counter.value++;
+ * } finally {
+ *     channel.endWrite();
+ * }
+ *
+ * Attention: views like TextView request layout by themselves when the content changed, give them fixed size to avoid
+ * the layout pass.
+ */
+public final class FloatWindowContentChannel<T> {
+    /**
+     * Create, copy and apply the state.
+     */
+    public interface Binder<T> {
+        /**
+         * Create an empty state, it will be called 3 times when opening the channel.
+         */
+        T createState();
+        
+        /**
+         * Copy the state, called on the producer's thread.
+         */
+        void copyState(T from, T to);
+        
+        /**
+         * Apply the state to the window's view, called on the UI thread.
+         *
+         * @return True if the size of the view changed, and the layout pass is needed.
+         */
+        boolean bindState(View windowView, T state);
+    }
+    
+    private final BaseFloatWindow mFloatWindow;
+    private final Binder<T> mBinder;
+    
+    // Buffers between the producers and the UI thread.
+    private final FloatWindowTripleBuffer<T> mBuffer;
+    // Is the front buffer holding any content.
+    private boolean mHasFrontState = false;
+    
+    // Apply the latest snapshot on the next frame.
+    private final FloatWindowFrameTrigger mApplyTrigger = new FloatWindowFrameTrigger(
+            new FloatWindowFrameTrigger.Callback() {
+                @Override
+                public void onFrame(long frameTimeNanos) {
+                    applyLatest();
+                }
+            });
+    
+    FloatWindowContentChannel(BaseFloatWindow floatWindow, Binder<T> binder) {
+        this.mFloatWindow = floatWindow;
+        this.mBinder = binder;
+        this.mBuffer = new FloatWindowTripleBuffer<>(binder);
+    }
+    
+    /**
+     * Begin to write the state, can be called on any thread. Must be paired with {@link #endWrite()}.
+     *
+     * @return The state to be written, it always holds the latest content written before.
+     */
+    public T beginWrite() {
+        return mBuffer.beginWrite();
+    }
+    
+    /**
+     * Publish the written state, and schedule to apply it on the next frame.
+     */
+    public void endWrite() {
+        mBuffer.endWrite();
+        mApplyTrigger.schedule();
+    }
+    
+    /**
+     * Apply the latest published state to the window's view, called on the UI thread.
+     */
+    private void applyLatest() {
+        if (mBuffer.takeLatest() == null) {
+            return;
+        }
+        mHasFrontState = true;
+        bindFront();
+    }
+    
+    /**
+     * Apply the front state again, when the window's view was recreated.
+     */
+    void rebind() {
+        if (mHasFrontState) {
+            bindFront();
+        }
+    }
+    
+    private void bindFront() {
+        final View contentView = mFloatWindow.getContentView();
+        // The view was released, the state will be applied when it's recreated.
+        if (contentView == null) {
+            return;
+        }
+        if (mBinder.bindState(contentView, mBuffer.getFront())) {
+            mFloatWindow.onContentSizeChanged();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,67 @@
+package com.joelzhu.floatwindow;
+
+/**
+ * Report of what the window is currently holding, see {@link BaseFloatWindow#getFootprint()}.
+ */
+public final class FloatWindowFootprint {
+    // Assume every pixel of the window's surface takes 4 bytes, as RGBA_8888.
+    private static final int BYTES_PER_PIXEL = 4;
+    
+    private final String mWindowClass;
+    private final boolean mIsWindowShowing;
+    private final boolean mIsHoldingContext;
+    private final boolean mIsHoldingLayoutParams;
+    private final boolean mIsHoldingParentView;
+    // Count of the views in the window's view tree, 0 if the view is released.
+    private final int mViewCount;
+    // Estimated size of the window's surface, 0 if the window is not showing.
+    private final long mSurfaceBytes;
+    
+    FloatWindowFootprint(String windowClass, boolean isWindowShowing, boolean isHoldingContext,
+            boolean isHoldingLayoutParams, boolean isHoldingParentView, int viewCount, int surfaceWidth,
+            int surfaceHeight) {
+        this.mWindowClass = windowClass;
+        this.mIsWindowShowing = isWindowShowing;
+        this.mIsHoldingContext = isHoldingContext;
+        this.mIsHoldingLayoutParams = isHoldingLayoutParams;
+        this.mIsHoldingParentView = isHoldingParentView;
+        this.mViewCount = viewCount;
+        this.mSurfaceBytes = isWindowShowing ? (long) Math.max(surfaceWidth, 0) * Math.max(surfaceHeight, 0) *
+                BYTES_PER_PIXEL : 0;
+    }
+    
+    public String getWindowClass() {
+        return mWindowClass;
+    }
+    
+    public boolean isWindowShowing() {
+        return mIsWindowShowing;
+    }
+    
+    public boolean isHoldingContext() {
+        return mIsHoldingContext;
+    }
+    
+    public boolean isHoldingLayoutParams() {
+        return mIsHoldingLayoutParams;
+    }
+    
+    public boolean isHoldingParentView() {
+        return mIsHoldingParentView;
+    }
+    
+    public int getViewCount() {
+        return mViewCount;
+    }
+    
+    public long getSurfaceBytes() {
+        return mSurfaceBytes;
+    }
+    
+    @Override
+    public String toString() {
+        return mWindowClass + "{showing=" + mIsWindowShowing + ", context=" + mIsHoldingContext + ", layoutParams=" +
+                mIsHoldingLayoutParams + ", parent=" + mIsHoldingParentView + ", views=" + mViewCount +
+                ", surfaceBytes=" + mSurfaceBytes + "}";
+    }
+}
\ No newline at end of file
@@ -0,0 +1,62 @@
+package com.joelzhu.floatwindow;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Trigger the callback on the UI thread at the next frame, no matter how many times it was scheduled before that.
+ *
+ * {@link #schedule()} can be called on any thread, and never locks.
+ */
+final class FloatWindowFrameTrigger {
+    /**
+     * Callback on the UI thread at the next frame.
+     */
+    interface Callback {
+        void onFrame(long frameTimeNanos);
+    }
+    
+    private final Callback mCallback;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    
+    // Is the callback been scheduled to the next frame.
+    private final AtomicBoolean mIsScheduled = new AtomicBoolean(false);
+    
+    private final Choreographer.FrameCallback mFrameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            // Reset the flag before callback, the schedules from now on will trigger another frame.
+            mIsScheduled.set(false);
+            mCallback.onFrame(frameTimeNanos);
+        }
+    };
+    
+    // Choreographer can only be obtained on the looper thread, so post to the UI thread first.
+    private final Runnable mScheduleRunnable = new Runnable() {
+        @Override
+        public void run() {
+            Choreographer.getInstance().postFrameCallback(mFrameCallback);
+        }
+    };
+    
+    FloatWindowFrameTrigger(Callback callback) {
+        this.mCallback = callback;
+    }
+    
+    /**
+     * Schedule the callback to the next frame, if it was not scheduled.
+     */
+    void schedule() {
+        if (!mIsScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        if (FloatWindowHelper.isMainThread()) {
+            mScheduleRunnable.run();
+        } else {
+            mMainHandler.post(mScheduleRunnable);
+        }
+    }
+}
\ No newline at end of file
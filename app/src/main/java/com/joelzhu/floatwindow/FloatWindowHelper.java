@@ -1,6 +1,10 @@
 package com.joelzhu.floatwindow;
 
+import android.os.Build;
+import android.os.Looper;
 import android.util.Log;
+import android.view.MotionEvent;
+import android.view.View;
 
 /**
  * Util class.
@@ -15,4 +19,17 @@ public final class FloatWindowHelper {
     public static void printInfoLog(String logString) {
         Log.i(TAG, logString);
     }
+    
+    public static boolean isMainThread() {
+        return Looper.myLooper() == Looper.getMainLooper();
+    }
+    
+    /**
+     * Request the touch events of this gesture dispatched without batching to vsync, only works since Lollipop.
+     */
+    public static void requestUnbufferedDispatch(View view, MotionEvent event) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            view.requestUnbufferedDispatch(event);
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,288 @@
+package com.joelzhu.floatwindow;
+
+import android.app.Activity;
+import android.app.Application;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.os.Bundle;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Release the resources held by the float windows, according to the activity's lifecycle and the memory pressure.
+ *
+ * Every {@link FloatView} registers it's window here when created, and the manager installs itself to the
+ * {@link Application} at the first time:
+ * 1) {@link Application.ActivityLifecycleCallbacks}: When the activity is destroyed, the windows created with it are
+ * dismissed, and all the references they hold are released, see {@link ReleaseLevel#ALL}.
+ * 2) {@link ComponentCallbacks2#onTrimMemory(int)}: The resources are released by stages according to the trim level,
+ * see {@link #toReleaseLevel(int)}.
+ *
+ * It's also the retained host of the windows: if the activity is destroyed by configuration changes, e.g. rotation,
+ * the showing windows with the retain key ({@link FloatView.Builder#retainKey(String)}) are kept showing, and
+ * re-bound to the {@link FloatView} created with the same key by the recreated activity. The windows not claimed
+ * until any activity resumed are released.
+ *
+ * All the methods must be called on the UI thread.
+ */
+public final class FloatWindowMemoryManager implements Application.ActivityLifecycleCallbacks, ComponentCallbacks2 {
+    private static FloatWindowMemoryManager sInstance;
+    
+    // Registered windows, held weakly, so the manager never keeps a window alive.
+    private final List<WeakReference<BaseFloatWindow>> mWindows = new ArrayList<>();
+    // Registered view pools.
+    private final List<WeakReference<FloatWindowViewPool>> mViewPools = new ArrayList<>();
+    // Windows retained from the activity destroyed by configuration changes, keyed by the retain key.
+    private final Map<String, BaseFloatWindow> mRetainedWindows = new HashMap<>();
+    
+    // Is the manager installed to the application.
+    private boolean mIsInstalled = false;
+    
+    private FloatWindowMemoryManager() {
+    }
+    
+    public static FloatWindowMemoryManager getInstance() {
+        if (sInstance == null) {
+            sInstance = new FloatWindowMemoryManager();
+        }
+        return sInstance;
+    }
+    
+    /**
+     * Register the window, and install the manager to the application if not installed.
+     */
+    void register(Context context, BaseFloatWindow floatWindow) {
+        install(context);
+        
+        pruneWindows();
+        mWindows.add(new WeakReference<>(floatWindow));
+        
+        // Register the window's view pool, if it has.
+        final FloatWindowViewPool viewPool = floatWindow.mViewPool;
+        if (viewPool != null) {
+            for (int i = mViewPools.size() - 1; i >= 0; i--) {
+                final FloatWindowViewPool registered = mViewPools.get(i).get();
+                if (registered == null) {
+                    mViewPools.remove(i);
+                } else if (registered == viewPool) {
+                    return;
+                }
+            }
+            mViewPools.add(new WeakReference<>(viewPool));
+        }
+    }
+    
+    /**
+     * Unregister the window, it will not be released by the manager any more.
+     */
+    void unregister(BaseFloatWindow floatWindow) {
+        for (int i = mWindows.size() - 1; i >= 0; i--) {
+            final BaseFloatWindow registered = mWindows.get(i).get();
+            if (registered == null || registered == floatWindow) {
+                mWindows.remove(i);
+            }
+        }
+    }
+    
+    /**
+     * Is there a retained window with the key.
+     */
+    boolean hasRetainedWindow(String retainKey) {
+        return retainKey != null && mRetainedWindows.containsKey(retainKey);
+    }
+    
+    /**
+     * Take the retained window with the key, null if there's none.
+     */
+    BaseFloatWindow claimRetainedWindow(String retainKey) {
+        if (retainKey == null) {
+            return null;
+        }
+        return mRetainedWindows.remove(retainKey);
+    }
+    
+    /**
+     * Release the resources of all the registered windows and view pools.
+     */
+    public void release(@ReleaseLevel int level) {
+        if (level == ReleaseLevel.NONE) {
+            return;
+        }
+        FloatWindowHelper.printInfoLog("Release float windows' resources, level: " + level);
+        
+        // Drop the pooled views.
+        for (int i = mViewPools.size() - 1; i >= 0; i--) {
+            final FloatWindowViewPool viewPool = mViewPools.get(i).get();
+            if (viewPool == null) {
+                mViewPools.remove(i);
+            } else {
+                viewPool.clear();
+            }
+        }
+        
+        for (int i = mWindows.size() - 1; i >= 0; i--) {
+            final BaseFloatWindow floatWindow = mWindows.get(i).get();
+            if (floatWindow == null) {
+                mWindows.remove(i);
+            } else {
+                floatWindow.releaseResources(level);
+            }
+        }
+    }
+    
+    /**
+     * Get the footprints of all the registered windows.
+     */
+    public List<FloatWindowFootprint> getFootprints() {
+        pruneWindows();
+        List<FloatWindowFootprint> footprints = new ArrayList<>(mWindows.size());
+        for (WeakReference<BaseFloatWindow> windowRef : mWindows) {
+            final BaseFloatWindow floatWindow = windowRef.get();
+            if (floatWindow != null) {
+                footprints.add(floatWindow.getFootprint());
+            }
+        }
+        return footprints;
+    }
+    
+    /**
+     * Dump the footprints of all the registered windows, one window per line.
+     */
+    public String dumpFootprints() {
+        StringBuilder builder = new StringBuilder();
+        for (FloatWindowFootprint footprint : getFootprints()) {
+            builder.append(footprint).append('\n');
+        }
+        return builder.toString();
+    }
+    
+    /**
+     * Convert the trim level of {@link ComponentCallbacks2#onTrimMemory(int)} to {@link ReleaseLevel}.
+     */
+    @ReleaseLevel
+    static int toReleaseLevel(int trimLevel) {
+        // The process is in the background LRU list, release everything can be recreated.
+        if (trimLevel >= TRIM_MEMORY_BACKGROUND) {
+            return ReleaseLevel.LAYOUTS;
+        }
+        // The UI is not visible any more, the invisible windows are useless.
+        if (trimLevel >= TRIM_MEMORY_UI_HIDDEN) {
+            return ReleaseLevel.WARM_WINDOWS;
+        }
+        // The process is running, but the device is running out of memory.
+        if (trimLevel >= TRIM_MEMORY_RUNNING_CRITICAL) {
+            return ReleaseLevel.LAYOUTS;
+        }
+        if (trimLevel >= TRIM_MEMORY_RUNNING_LOW) {
+            return ReleaseLevel.WARM_WINDOWS;
+        }
+        if (trimLevel >= TRIM_MEMORY_RUNNING_MODERATE) {
+            return ReleaseLevel.CACHES;
+        }
+        return ReleaseLevel.NONE;
+    }
+    
+    @Override
+    public void onTrimMemory(int level) {
+        release(toReleaseLevel(level));
+    }
+    
+    @Override
+    public void onLowMemory() {
+        release(ReleaseLevel.LAYOUTS);
+    }
+    
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+    }
+    
+    @Override
+    public void onActivityDestroyed(Activity activity) {
+        // Release all the windows created with the activity.
+        for (int i = mWindows.size() - 1; i >= 0; i--) {
+            final BaseFloatWindow floatWindow = mWindows.get(i).get();
+            if (floatWindow == null) {
+                mWindows.remove(i);
+            } else if (floatWindow.isCreatedWith(activity)) {
+                // Keep the window showing, the recreated activity will claim it.
+                if (activity.isChangingConfigurations() && floatWindow.mRetainKey != null &&
+                        floatWindow.isWindowShowing()) {
+                    FloatWindowHelper.printInfoLog("Retain float window: " + floatWindow.mRetainKey);
+                    final BaseFloatWindow replaced = mRetainedWindows.put(floatWindow.mRetainKey, floatWindow);
+                    if (replaced != null) {
+                        replaced.releaseResources(ReleaseLevel.ALL);
+                    }
+                } else {
+                    floatWindow.releaseResources(ReleaseLevel.ALL);
+                }
+                mWindows.remove(i);
+            }
+        }
+    }
+    
+    @Override
+    public void onActivityCreated(Activity activity, Bundle savedInstanceState) {
+    }
+    
+    @Override
+    public void onActivityStarted(Activity activity) {
+    }
+    
+    @Override
+    public void onActivityResumed(Activity activity) {
+        // The retained windows not claimed by the recreated activity are useless.
+        if (mRetainedWindows.isEmpty()) {
+            return;
+        }
+        for (BaseFloatWindow floatWindow : mRetainedWindows.values()) {
+            floatWindow.releaseResources(ReleaseLevel.ALL);
+        }
+        mRetainedWindows.clear();
+    }
+    
+    @Override
+    public void onActivityPaused(Activity activity) {
+    }
+    
+    @Override
+    public void onActivityStopped(Activity activity) {
+    }
+    
+    @Override
+    public void onActivitySaveInstanceState(Activity activity, Bundle outState) {
+    }
+    
+    /**
+     * Install the callbacks to the application.
+     */
+    private void install(Context context) {
+        if (mIsInstalled || context == null) {
+            return;
+        }
+        final Context appContext = context.getApplicationContext();
+        if (!(appContext instanceof Application)) {
+            FloatWindowHelper.printErrorLog("Application is not found, resources will not be released automatically.");
+            return;
+        }
+        final Application application = (Application) appContext;
+        application.registerActivityLifecycleCallbacks(this);
+        application.registerComponentCallbacks(this);
+        mIsInstalled = true;
+    }
+    
+    /**
+     * Remove the windows which were garbage collected.
+     */
+    private void pruneWindows() {
+        for (int i = mWindows.size() - 1; i >= 0; i--) {
+            if (mWindows.get(i).get() == null) {
+                mWindows.remove(i);
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,276 @@
+package com.joelzhu.floatwindow;
+
+import android.os.Debug;
+import android.view.MotionEvent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Locale;
+
+/**
+ * Sampling profiler of the touch hooks overridden by the subclasses of {@link BaseFloatWindow}.
+ *
+ * When enabled, one of every {@link #setSampleInterval(int)} touch events is sampled. For each window class, the
+ * thread CPU time spent in {@link BaseFloatWindow#doOnDispatchEvent(MotionEvent)},
+ * {@link BaseFloatWindow#doOnInterceptTouchEvent(MotionEvent)} and {@link BaseFloatWindow#doOnTouchEvent(MotionEvent)}
+ * is recorded, with the time spent in the library's methods called by the hook, e.g. popupWindow(), moveWindow()
+ * or collapseWindow(), recorded separately. The hook whose own time exceeds {@link #setSlowThresholdNanos(long)} is
+ * counted as slow, and logged when it's the slowest one so far. Call {@link #dump(int)} to list the worst offenders.
+ *
+ * The counters of each window class are allocated when its first float view is created, sampling an event doesn't
+ * allocate anything. All the methods must be called on the UI thread, the library calls on other threads are ignored.
+ */
+public final class FloatWindowProfiler {
+    // Count of the hooks in ProfiledHook, and their names indexed by the hook.
+    private static final int HOOK_COUNT = 3;
+    private static final String[] HOOK_NAMES = {"doOnDispatchEvent", "doOnInterceptTouchEvent", "doOnTouchEvent"};
+    
+    // Default values of the settings.
+    public static final int DEFAULT_SAMPLE_INTERVAL = 1;
+    public static final long DEFAULT_SLOW_THRESHOLD_NANOS = 2000000L;
+    
+    private static final FloatWindowProfiler sInstance = new FloatWindowProfiler();
+    
+    // Counters of each window class.
+    private final HashMap<Class<?>, WindowStats> mWindowStats = new HashMap<>();
+    
+    private boolean mIsEnabled = false;
+    private int mSampleInterval = DEFAULT_SAMPLE_INTERVAL;
+    private long mSlowThresholdNanos = DEFAULT_SLOW_THRESHOLD_NANOS;
+    // Count of the events, to pick the sampled ones.
+    private int mEventCount;
+    
+    // Depth of the sampled hooks running now, the library calls are only measured inside them.
+    private int mHookDepth;
+    // Depth of the library calls running now, only the outermost one is measured.
+    private int mLibraryDepth;
+    private long mLibraryStartNanos;
+    // Total time spent in the library calls, only increases.
+    private long mLibraryNanos;
+    
+    /**
+     * Counters of one window class.
+     */
+    static final class WindowStats {
+        final Class<?> mClazz;
+        final long[] mSampleCounts = new long[HOOK_COUNT];
+        final long[] mSlowCounts = new long[HOOK_COUNT];
+        final long[] mSelfNanos = new long[HOOK_COUNT];
+        final long[] mMaxSelfNanos = new long[HOOK_COUNT];
+        final long[] mLibraryNanos = new long[HOOK_COUNT];
+        
+        // Start time of the running hooks.
+        final long[] mHookStartNanos = new long[HOOK_COUNT];
+        final long[] mHookLibraryStartNanos = new long[HOOK_COUNT];
+        
+        WindowStats(Class<?> clazz) {
+            this.mClazz = clazz;
+        }
+        
+        void reset() {
+            for (int i = 0; i < HOOK_COUNT; i++) {
+                mSampleCounts[i] = 0;
+                mSlowCounts[i] = 0;
+                mSelfNanos[i] = 0;
+                mMaxSelfNanos[i] = 0;
+                mLibraryNanos[i] = 0;
+            }
+        }
+    }
+    
+    /**
+     * One hook of the window class, listed in the dump.
+     */
+    private static final class Entry {
+        final WindowStats mWindowStats;
+        @ProfiledHook
+        final int mHook;
+        
+        Entry(WindowStats windowStats, @ProfiledHook int hook) {
+            this.mWindowStats = windowStats;
+            this.mHook = hook;
+        }
+    }
+    
+    private FloatWindowProfiler() {
+    }
+    
+    public static FloatWindowProfiler getInstance() {
+        return sInstance;
+    }
+    
+    /**
+     * Enable or disable sampling, disabled by default.
+     */
+    public void setEnabled(boolean isEnabled) {
+        this.mIsEnabled = isEnabled;
+    }
+    
+    public boolean isEnabled() {
+        return mIsEnabled;
+    }
+    
+    /**
+     * Sample one of every interval touch events, 1 means every event is sampled.
+     */
+    public void setSampleInterval(int interval) {
+        if (interval < 1) {
+            throw new IllegalArgumentException("Sample interval must be positive, but was " + interval);
+        }
+        this.mSampleInterval = interval;
+    }
+    
+    /**
+     * Set the threshold of the hook's own CPU time, the hook exceeds it is counted as slow.
+     */
+    public void setSlowThresholdNanos(long thresholdNanos) {
+        if (thresholdNanos < 0) {
+            throw new IllegalArgumentException("Slow threshold can't be negative, but was " + thresholdNanos);
+        }
+        this.mSlowThresholdNanos = thresholdNanos;
+    }
+    
+    /**
+     * Clear the counters of all the window classes.
+     */
+    public void reset() {
+        for (WindowStats windowStats : mWindowStats.values()) {
+            windowStats.reset();
+        }
+    }
+    
+    /**
+     * List the worst hooks, the slowest one first.
+     *
+     * @param maxCount Max count of the hooks listed.
+     * @return One line for each hook, with the count of samples and slow samples, the average and max own CPU time,
+     * and the average CPU time spent in the library calls.
+     */
+    public String dump(int maxCount) {
+        final ArrayList<Entry> entries = new ArrayList<>();
+        for (WindowStats windowStats : mWindowStats.values()) {
+            for (int hook = 0; hook < HOOK_COUNT; hook++) {
+                if (windowStats.mSampleCounts[hook] > 0) {
+                    entries.add(new Entry(windowStats, hook));
+                }
+            }
+        }
+        // The larger max own time first.
+        Collections.sort(entries, new Comparator<Entry>() {
+            @Override
+            public int compare(Entry lhs, Entry rhs) {
+                final long lhsNanos = lhs.mWindowStats.mMaxSelfNanos[lhs.mHook];
+                final long rhsNanos = rhs.mWindowStats.mMaxSelfNanos[rhs.mHook];
+                return lhsNanos > rhsNanos ? -1 : (lhsNanos == rhsNanos ? 0 : 1);
+            }
+        });
+        
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < entries.size() && i < maxCount; i++) {
+            final WindowStats windowStats = entries.get(i).mWindowStats;
+            final int hook = entries.get(i).mHook;
+            final long sampleCount = windowStats.mSampleCounts[hook];
+            builder.append(String.format(Locale.US,
+                    "%s.%s: samples=%d, slow=%d, avg=%.3fms, max=%.3fms, library avg=%.3fms\n",
+                    windowStats.mClazz.getSimpleName(), HOOK_NAMES[hook], sampleCount, windowStats.mSlowCounts[hook],
+                    toMillis(windowStats.mSelfNanos[hook] / sampleCount), toMillis(windowStats.mMaxSelfNanos[hook]),
+                    toMillis(windowStats.mLibraryNanos[hook] / sampleCount)));
+        }
+        return builder.toString();
+    }
+    
+    /**
+     * Get the counters of the window class, create them if not exist.
+     */
+    WindowStats obtainStats(Class<?> clazz) {
+        WindowStats windowStats = mWindowStats.get(clazz);
+        if (windowStats == null) {
+            windowStats = new WindowStats(clazz);
+            mWindowStats.put(clazz, windowStats);
+        }
+        return windowStats;
+    }
+    
+    /**
+     * Decide whether to sample the touch event, called once for each event.
+     */
+    boolean shouldSample() {
+        if (!mIsEnabled) {
+            return false;
+        }
+        if (++mEventCount < mSampleInterval) {
+            return false;
+        }
+        mEventCount = 0;
+        return true;
+    }
+    
+    /**
+     * Start measuring the hook of the sampled event.
+     */
+    void beginHook(WindowStats windowStats, @ProfiledHook int hook) {
+        mHookDepth++;
+        windowStats.mHookLibraryStartNanos[hook] = mLibraryNanos;
+        windowStats.mHookStartNanos[hook] = Debug.threadCpuTimeNanos();
+    }
+    
+    /**
+     * Stop measuring the hook of the sampled event, and record the time.
+     */
+    void endHook(WindowStats windowStats, @ProfiledHook int hook) {
+        final long endNanos = Debug.threadCpuTimeNanos();
+        mHookDepth--;
+        // Thread CPU time is not supported.
+        if (endNanos < 0) {
+            return;
+        }
+        final long libraryNanos = mLibraryNanos - windowStats.mHookLibraryStartNanos[hook];
+        final long selfNanos = Math.max(0, endNanos - windowStats.mHookStartNanos[hook] - libraryNanos);
+        windowStats.mSampleCounts[hook]++;
+        windowStats.mSelfNanos[hook] += selfNanos;
+        windowStats.mLibraryNanos[hook] += libraryNanos;
+        if (selfNanos > mSlowThresholdNanos) {
+            windowStats.mSlowCounts[hook]++;
+            if (selfNanos > windowStats.mMaxSelfNanos[hook]) {
+                FloatWindowHelper.printErrorLog(String.format(Locale.US, "Slow hook %s.%s took %.3fms.",
+                        windowStats.mClazz.getSimpleName(), HOOK_NAMES[hook], toMillis(selfNanos)));
+            }
+        }
+        windowStats.mMaxSelfNanos[hook] = Math.max(windowStats.mMaxSelfNanos[hook], selfNanos);
+    }
+    
+    /**
+     * Start measuring the library call, it's measured only when called by a sampled hook.
+     */
+    void beginLibraryCall() {
+        // Nothing is sampled, skip the thread check, it's called by every library call.
+        if (mHookDepth == 0) {
+            return;
+        }
+        // The hooks are only sampled on the UI thread, ignore the calls on other threads.
+        if (!FloatWindowHelper.isMainThread()) {
+            return;
+        }
+        if (mLibraryDepth++ == 0) {
+            mLibraryStartNanos = Debug.threadCpuTimeNanos();
+        }
+    }
+    
+    /**
+     * Stop measuring the library call.
+     */
+    void endLibraryCall() {
+        if (mHookDepth == 0 || mLibraryDepth == 0 || !FloatWindowHelper.isMainThread()) {
+            return;
+        }
+        if (--mLibraryDepth == 0) {
+            mLibraryNanos += Debug.threadCpuTimeNanos() - mLibraryStartNanos;
+        }
+    }
+    
+    private static double toMillis(long nanos) {
+        return nanos / 1000000.0;
+    }
+}
\ No newline at end of file
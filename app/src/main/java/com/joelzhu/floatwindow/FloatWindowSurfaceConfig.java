@@ -0,0 +1,106 @@
+package com.joelzhu.floatwindow;
+
+import android.graphics.PixelFormat;
+import android.os.Build;
+import android.view.View;
+import android.view.WindowManager;
+import android.view.WindowManager.LayoutParams;
+
+/**
+ * Surface configuration of the window: pixel format, window type and hardware acceleration.
+ *
+ * By default, the configuration is chosen by {@link #choose(View, float)} every time the window pops up: an opaque
+ * window which is fully visible uses {@link PixelFormat#OPAQUE}, so the compositor doesn't need to blend it, and the
+ * others use {@link PixelFormat#RGBA_8888}. The format is kept until the window is removed, even if the transparent
+ * changes, since changing it rebuilds the window's surface. Hardware acceleration is always on in both presets, it's
+ * not chosen by the content, use the constructor to turn it off. The configuration can be overridden by
+ * {@link FloatView.Builder#surfaceConfig(FloatWindowSurfaceConfig)}, and the chosen one can be got from
+ * {@link BaseFloatWindow#getSurfaceConfig()}.
+ */
+public final class FloatWindowSurfaceConfig {
+    // WindowManager.LayoutParams.TYPE_APPLICATION_OVERLAY, added in Android O.
+    private static final int TYPE_APPLICATION_OVERLAY = 2038;
+    // Build.VERSION_CODES.O.
+    private static final int VERSION_CODE_O = 26;
+    
+    /**
+     * Configuration for the opaque content which is fully visible.
+     */
+    public static final FloatWindowSurfaceConfig OPAQUE = new FloatWindowSurfaceConfig(PixelFormat.OPAQUE,
+            getDefaultWindowType(), true);
+    
+    /**
+     * Configuration for the content which needs alpha blending.
+     */
+    public static final FloatWindowSurfaceConfig TRANSLUCENT = new FloatWindowSurfaceConfig(PixelFormat.RGBA_8888,
+            getDefaultWindowType(), true);
+    
+    private final int mPixelFormat;
+    private final int mWindowType;
+    private final boolean mIsHardwareAccelerated;
+    
+    /**
+     * @param pixelFormat           The format in {@link PixelFormat}.
+     * @param windowType            The window type in {@link LayoutParams}, see {@link #getDefaultWindowType()}.
+     * @param isHardwareAccelerated Is the window hardware accelerated.
+     */
+    public FloatWindowSurfaceConfig(int pixelFormat, int windowType, boolean isHardwareAccelerated) {
+        this.mPixelFormat = pixelFormat;
+        this.mWindowType = windowType;
+        this.mIsHardwareAccelerated = isHardwareAccelerated;
+    }
+    
+    /**
+     * Choose the configuration by the window's content and transparent.
+     */
+    public static FloatWindowSurfaceConfig choose(View windowView, @WindowTransparent float transparent) {
+        if (transparent >= WindowTransparent.MAX && windowView != null && windowView.isOpaque()) {
+            return OPAQUE;
+        }
+        return TRANSLUCENT;
+    }
+    
+    /**
+     * Get the window type above all the other applications, {@link LayoutParams#TYPE_SYSTEM_ALERT} is not allowed
+     * since Android O.
+     */
+    public static int getDefaultWindowType() {
+        if (Build.VERSION.SDK_INT >= VERSION_CODE_O) {
+            return TYPE_APPLICATION_OVERLAY;
+        }
+        return WindowManager.LayoutParams.TYPE_SYSTEM_ALERT;
+    }
+    
+    /**
+     * Apply the configuration to the {@link LayoutParams}. The window type can't be changed after the window added.
+     */
+    void applyTo(LayoutParams layoutParams, boolean isWindowAdded) {
+        layoutParams.format = mPixelFormat;
+        if (!isWindowAdded) {
+            layoutParams.type = mWindowType;
+        }
+        if (mIsHardwareAccelerated) {
+            layoutParams.flags |= LayoutParams.FLAG_HARDWARE_ACCELERATED;
+        } else {
+            layoutParams.flags &= ~LayoutParams.FLAG_HARDWARE_ACCELERATED;
+        }
+    }
+    
+    public int getPixelFormat() {
+        return mPixelFormat;
+    }
+    
+    public int getWindowType() {
+        return mWindowType;
+    }
+    
+    public boolean isHardwareAccelerated() {
+        return mIsHardwareAccelerated;
+    }
+    
+    @Override
+    public String toString() {
+        return "FloatWindowSurfaceConfig{format=" + mPixelFormat + ", type=" + mWindowType + ", hardwareAccelerated=" +
+                mIsHardwareAccelerated + "}";
+    }
+}
\ No newline at end of file
@@ -0,0 +1,89 @@
+package com.joelzhu.floatwindow;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Triple buffer of the state, between the producers and the single consumer, used by
+ * {@link FloatWindowContentChannel}.
+ *
+ * The producers fill the back buffer, and publish it by swapping with the middle buffer. The consumer takes the middle
+ * buffer by swapping with the front buffer. The index of the middle buffer and the dirty bit are kept in one atomic
+ * integer, so they're always swapped together, the consumer never takes back the buffer it has already taken. The
+ * consumer never waits for the producers, and the producers are serialized with each other.
+ */
+final class FloatWindowTripleBuffer<T> {
+    // The dirty bit, set when the middle buffer is published by the producer and not taken by the consumer yet.
+    private static final int DIRTY = 4;
+    private static final int INDEX_MASK = 3;
+    
+    private final FloatWindowContentChannel.Binder<T> mBinder;
+    private final Object[] mStates = new Object[3];
+    
+    // Serialize the producers.
+    private final ReentrantLock mWriteLock = new ReentrantLock();
+    // Index of the back buffer, only accessed with the write lock.
+    private int mBackIndex = 0;
+    // Index of the middle buffer, with the dirty bit.
+    private final AtomicInteger mMiddle = new AtomicInteger(1);
+    // Index of the front buffer, only accessed by the consumer.
+    private int mFrontIndex = 2;
+    
+    FloatWindowTripleBuffer(FloatWindowContentChannel.Binder<T> binder) {
+        this.mBinder = binder;
+        for (int i = 0; i < mStates.length; i++) {
+            mStates[i] = binder.createState();
+        }
+    }
+    
+    /**
+     * Begin to write the back buffer, can be called on any thread. Must be paired with {@link #endWrite()}.
+     *
+     * @return The back buffer, it always holds the latest content written before.
+     */
+    T beginWrite() {
+        mWriteLock.lock();
+        return getState(mBackIndex);
+    }
+    
+    /**
+     * Publish the back buffer.
+     */
+    void endWrite() {
+        try {
+            final int writtenIndex = mBackIndex;
+            // Hand over the written buffer, and take back the buffer which was published or taken before.
+            mBackIndex = mMiddle.getAndSet(writtenIndex | DIRTY) & INDEX_MASK;
+            // Keep the content, so the producers can update only part of the state.
+            mBinder.copyState(getState(writtenIndex), getState(mBackIndex));
+        } finally {
+            mWriteLock.unlock();
+        }
+    }
+    
+    /**
+     * Take the latest published buffer as the front buffer, called on the consumer thread.
+     *
+     * @return The new front buffer, null if nothing published since the last time.
+     */
+    T takeLatest() {
+        if ((mMiddle.get() & DIRTY) == 0) {
+            return null;
+        }
+        // Only the consumer clears the dirty bit, so it's still set here.
+        mFrontIndex = mMiddle.getAndSet(mFrontIndex) & INDEX_MASK;
+        return getState(mFrontIndex);
+    }
+    
+    /**
+     * Get the front buffer, called on the consumer thread.
+     */
+    T getFront() {
+        return getState(mFrontIndex);
+    }
+    
+    @SuppressWarnings("unchecked")
+    private T getState(int index) {
+        return (T) mStates[index];
+    }
+}
\ No newline at end of file
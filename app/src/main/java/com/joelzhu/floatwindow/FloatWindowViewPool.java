@@ -0,0 +1,166 @@
+package com.joelzhu.floatwindow;
+
+import android.content.Context;
+import android.support.annotation.LayoutRes;
+import android.util.SparseArray;
+import android.view.LayoutInflater;
+import android.view.View;
+
+import java.util.ArrayList;
+
+/**
+ * Pool of the window's views, keyed by layout resource.
+ *
+ * Similar to the RecycledViewPool in RecyclerView: when the window's layout type is {@link LayoutType#RESOURCE}, the
+ * view will be taken from the pool when the window is created or popped up, and given back to the pool when the
+ * window is dismissed. So the float views using the same layout resource can share the inflated views, instead of
+ * inflating a new view tree for every one of them. Reset the content of the reused view in
+ * {@link BaseFloatWindow#onBindWindowView(View)}.
+ *
+ * Here's the simplified sample code:
+ * FloatWindowViewPool pool = new FloatWindowViewPool();
+ * FloatView mFloatView = new FloatView.Builder(this, [The class extends {@link BaseFloatWindow}].class)
+ * .layout([Layout resource id])
+ * .viewPool(pool)
+ * .create();
+ *
+ * Attention: the pooled views hold the context they were inflated with, so do not share the pool between activities,
+ * and call {@link #clear()} when the activity is destroyed. The pool must be accessed on the UI thread only.
+ */
+public final class FloatWindowViewPool {
+    // Default max count of the recycled views for each layout resource.
+    public static final int DEFAULT_MAX_SCRAP = 5;
+    
+    // Recycled views and counters for each layout resource.
+    private final SparseArray<ScrapData> mScrap = new SparseArray<>();
+    
+    // Total counters.
+    private int mHitCount;
+    private int mMissCount;
+    
+    /**
+     * Recycled views and counters of one layout resource.
+     */
+    private static final class ScrapData {
+        final ArrayList<View> mScrapViews = new ArrayList<>();
+        int mMaxScrap = DEFAULT_MAX_SCRAP;
+        int mHitCount;
+        int mMissCount;
+    }
+    
+    /**
+     * Set the max count of the recycled views for the layout resource, the extra views will be dropped.
+     */
+    public void setMaxRecycledViews(@LayoutRes int layoutResId, int max) {
+        if (max < 0) {
+            throw new IllegalArgumentException("Max recycled views can't be negative, but was " + max);
+        }
+        ScrapData scrapData = getScrapData(layoutResId);
+        scrapData.mMaxScrap = max;
+        final ArrayList<View> scrapViews = scrapData.mScrapViews;
+        while (scrapViews.size() > max) {
+            scrapViews.remove(scrapViews.size() - 1);
+        }
+    }
+    
+    /**
+     * Take a view from the pool, or inflate a new one if there's no recycled view.
+     */
+    public View acquire(Context context, @LayoutRes int layoutResId) {
+        ScrapData scrapData = getScrapData(layoutResId);
+        final ArrayList<View> scrapViews = scrapData.mScrapViews;
+        if (!scrapViews.isEmpty()) {
+            scrapData.mHitCount++;
+            mHitCount++;
+            return scrapViews.remove(scrapViews.size() - 1);
+        }
+        
+        if (context == null) {
+            throw new RuntimeException("Context is null, can't create view instance from layout resource.");
+        }
+        scrapData.mMissCount++;
+        mMissCount++;
+        return LayoutInflater.from(context).inflate(layoutResId, null, false);
+    }
+    
+    /**
+     * Give the view back to the pool.
+     *
+     * @return False if the pool of the layout resource is full, or the view still has parent, the view is dropped.
+     */
+    public boolean release(@LayoutRes int layoutResId, View view) {
+        if (view == null) {
+            return false;
+        }
+        if (view.getParent() != null) {
+            FloatWindowHelper.printErrorLog("View still has parent, can't be given back to the pool.");
+            return false;
+        }
+        
+        ScrapData scrapData = getScrapData(layoutResId);
+        final ArrayList<View> scrapViews = scrapData.mScrapViews;
+        if (scrapViews.size() >= scrapData.mMaxScrap || scrapViews.contains(view)) {
+            return false;
+        }
+        scrapViews.add(view);
+        return true;
+    }
+    
+    /**
+     * Drop all the recycled views, the counters are kept.
+     */
+    public void clear() {
+        for (int i = 0; i < mScrap.size(); i++) {
+            mScrap.valueAt(i).mScrapViews.clear();
+        }
+    }
+    
+    /**
+     * Get the count of the recycled views for the layout resource.
+     */
+    public int getRecycledViewCount(@LayoutRes int layoutResId) {
+        return getScrapData(layoutResId).mScrapViews.size();
+    }
+    
+    /**
+     * Get the count of the recycled views for all the layout resources.
+     */
+    public int getRecycledViewCount() {
+        int count = 0;
+        for (int i = 0; i < mScrap.size(); i++) {
+            count += mScrap.valueAt(i).mScrapViews.size();
+        }
+        return count;
+    }
+    
+    /**
+     * Get the times that a view was taken from the pool.
+     */
+    public int getHitCount() {
+        return mHitCount;
+    }
+    
+    public int getHitCount(@LayoutRes int layoutResId) {
+        return getScrapData(layoutResId).mHitCount;
+    }
+    
+    /**
+     * Get the times that a view was inflated because there's no recycled view.
+     */
+    public int getMissCount() {
+        return mMissCount;
+    }
+    
+    public int getMissCount(@LayoutRes int layoutResId) {
+        return getScrapData(layoutResId).mMissCount;
+    }
+    
+    private ScrapData getScrapData(@LayoutRes int layoutResId) {
+        ScrapData scrapData = mScrap.get(layoutResId);
+        if (scrapData == null) {
+            scrapData = new ScrapData();
+            mScrap.put(layoutResId, scrapData);
+        }
+        return scrapData;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,27 @@
+package com.joelzhu.floatwindow;
+
+import android.support.annotation.IntDef;
+import android.view.MotionEvent;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+/**
+ * The annotation for the touch hooks of {@link BaseFloatWindow} measured by {@link FloatWindowProfiler}.
+ *
+ * The hooks are as below:
+ * 1) {@link #DISPATCH}: {@link BaseFloatWindow#doOnDispatchEvent(MotionEvent)}.
+ * 2) {@link #INTERCEPT}: {@link BaseFloatWindow#doOnInterceptTouchEvent(MotionEvent)}.
+ * 3) {@link #TOUCH}: {@link BaseFloatWindow#doOnTouchEvent(MotionEvent)}.
+ */
+@IntDef({
+        ProfiledHook.DISPATCH,
+        ProfiledHook.INTERCEPT,
+        ProfiledHook.TOUCH
+})
+@Retention(RetentionPolicy.SOURCE)
+public @interface ProfiledHook {
+    int DISPATCH = 0;
+    int INTERCEPT = 1;
+    int TOUCH = 2;
+}
\ No newline at end of file
@@ -0,0 +1,32 @@
+package com.joelzhu.floatwindow;
+
+import android.support.annotation.IntDef;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+/**
+ * The annotation for the level of releasing resources, each level releases everything of the lower levels as well.
+ *
+ * The release levels are as below:
+ * 1) {@link #NONE}: Nothing will be released.
+ * 2) {@link #CACHES}: Drop the cached bitmaps and the pooled views.
+ * 3) {@link #WARM_WINDOWS}: Detach the windows which are showing but invisible, e.g. the transparent is 0.
+ * 4) {@link #LAYOUTS}: Release the window's views which can be recreated from the layout resource.
+ * 5) {@link #ALL}: The activity was destroyed, release all the references held by the window.
+ */
+@IntDef({
+        ReleaseLevel.NONE,
+        ReleaseLevel.CACHES,
+        ReleaseLevel.WARM_WINDOWS,
+        ReleaseLevel.LAYOUTS,
+        ReleaseLevel.ALL
+})
+@Retention(RetentionPolicy.SOURCE)
+public @interface ReleaseLevel {
+    int NONE = 0;
+    int CACHES = 1;
+    int WARM_WINDOWS = 2;
+    int LAYOUTS = 3;
+    int ALL = 4;
+}
\ No newline at end of file
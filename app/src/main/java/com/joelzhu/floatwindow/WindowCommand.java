@@ -0,0 +1,35 @@
+package com.joelzhu.floatwindow;
+
+import android.support.annotation.IntDef;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+/**
+ * The annotation for the commands posted through {@link FloatWindowCommander}.
+ *
+ * The command types are as below:
+ * 1) {@link #POPUP}: Pop up the window at the specified coordinates.
+ * 2) {@link #POPUP_FROM_ORIGIN}: Pop up the window from the origin view's position.
+ * 3) {@link #MOVE_TO}: Move the window to the specified coordinates, only the last one in a frame works.
+ * 4) {@link #MOVE_BY}: Move the window by the specified distance, the distances in a frame are summed up.
+ * 5) {@link #TRANSPARENT}: Update the window's transparent, only the last one in a frame works.
+ * 6) {@link #DISMISS}: Dismiss the window.
+ */
+@IntDef({
+        WindowCommand.POPUP,
+        WindowCommand.POPUP_FROM_ORIGIN,
+        WindowCommand.MOVE_TO,
+        WindowCommand.MOVE_BY,
+        WindowCommand.TRANSPARENT,
+        WindowCommand.DISMISS
+})
+@Retention(RetentionPolicy.SOURCE)
+public @interface WindowCommand {
+    int POPUP = 1;
+    int POPUP_FROM_ORIGIN = 2;
+    int MOVE_TO = 3;
+    int MOVE_BY = 4;
+    int TRANSPARENT = 5;
+    int DISMISS = 6;
+}
\ No newline at end of file
@@ -0,0 +1,123 @@
+package com.joelzhu.floatwindow;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit test of {@link FloatWindowCommandQueue}.
+ */
+public class FloatWindowCommandQueueTest {
+    @Test
+    public void capacity_isRoundedUpToPowerOf2() throws Exception {
+        assertEquals(1, new FloatWindowCommandQueue(1).getCapacity());
+        assertEquals(8, new FloatWindowCommandQueue(5).getCapacity());
+        assertEquals(8, new FloatWindowCommandQueue(8).getCapacity());
+        assertEquals(16, new FloatWindowCommandQueue(9).getCapacity());
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void capacity_mustBePositive() throws Exception {
+        new FloatWindowCommandQueue(0);
+    }
+    
+    @Test
+    public void offer_isRejectedWhenFull() throws Exception {
+        FloatWindowCommandQueue queue = new FloatWindowCommandQueue(4);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(queue.offer(WindowCommand.MOVE_BY, i, 0, 0f));
+        }
+        assertFalse(queue.offer(WindowCommand.MOVE_BY, 4, 0, 0f));
+        
+        // One slot is free again after polled.
+        FloatWindowCommandQueue.Command command = new FloatWindowCommandQueue.Command();
+        assertTrue(queue.poll(command));
+        assertEquals(0, command.firstArg);
+        assertTrue(queue.offer(WindowCommand.MOVE_BY, 4, 0, 0f));
+        assertFalse(queue.offer(WindowCommand.MOVE_BY, 5, 0, 0f));
+    }
+    
+    @Test
+    public void poll_returnsFalseWhenEmpty() throws Exception {
+        FloatWindowCommandQueue queue = new FloatWindowCommandQueue(4);
+        assertFalse(queue.poll(new FloatWindowCommandQueue.Command()));
+    }
+    
+    @Test
+    public void slots_areReusedAfterWrapAround() throws Exception {
+        FloatWindowCommandQueue queue = new FloatWindowCommandQueue(4);
+        FloatWindowCommandQueue.Command command = new FloatWindowCommandQueue.Command();
+        // Go around the ring many times, with different fill levels.
+        int next = 0;
+        for (int round = 0; round < 100; round++) {
+            final int count = round % 4 + 1;
+            for (int i = 0; i < count; i++) {
+                assertTrue(queue.offer(WindowCommand.MOVE_TO, next + i, -(next + i), (next + i) / 2f));
+            }
+            for (int i = 0; i < count; i++) {
+                assertTrue(queue.poll(command));
+                assertEquals(WindowCommand.MOVE_TO, command.type);
+                assertEquals(next + i, command.firstArg);
+                assertEquals(-(next + i), command.secondArg);
+                assertEquals((next + i) / 2f, command.floatArg, 0f);
+            }
+            assertFalse(queue.poll(command));
+            next += count;
+        }
+    }
+    
+    @Test
+    public void producers_neverLoseOrDuplicateCommands() throws Exception {
+        final int producerCount = 4;
+        final int commandCount = 100000;
+        final FloatWindowCommandQueue queue = new FloatWindowCommandQueue(64);
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        
+        Thread[] producers = new Thread[producerCount];
+        for (int p = 0; p < producerCount; p++) {
+            final int producer = p;
+            producers[p] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        startLatch.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < commandCount; i++) {
+                        // Retry until the consumer frees a slot.
+                        while (!queue.offer(WindowCommand.MOVE_BY, producer, i, 0f)) {
+                            Thread.yield();
+                        }
+                    }
+                }
+            });
+            producers[p].start();
+        }
+        startLatch.countDown();
+        
+        // Commands of each producer arrive in order, so the next expected one is enough to detect loss or duplicate.
+        int[] expected = new int[producerCount];
+        FloatWindowCommandQueue.Command command = new FloatWindowCommandQueue.Command();
+        int received = 0;
+        while (received < producerCount * commandCount) {
+            if (!queue.poll(command)) {
+                Thread.yield();
+                continue;
+            }
+            assertEquals(WindowCommand.MOVE_BY, command.type);
+            assertEquals(expected[command.firstArg], command.secondArg);
+            expected[command.firstArg]++;
+            received++;
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        assertFalse(queue.poll(command));
+        for (int p = 0; p < producerCount; p++) {
+            assertEquals(commandCount, expected[p]);
+        }
+    }
+}
\ No newline at end of file
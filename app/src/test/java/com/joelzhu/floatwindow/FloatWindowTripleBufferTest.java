@@ -0,0 +1,133 @@
+package com.joelzhu.floatwindow;
+
+import android.view.View;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit test of {@link FloatWindowTripleBuffer}, the buffers of {@link FloatWindowContentChannel}.
+ */
+public class FloatWindowTripleBufferTest {
+    /**
+     * State written by the producers, the fields are always written together.
+     */
+    private static final class Counter {
+        long value;
+        long negative;
+    }
+    
+    private static final FloatWindowContentChannel.Binder<Counter> BINDER =
+            new FloatWindowContentChannel.Binder<Counter>() {
+                @Override
+                public Counter createState() {
+                    return new Counter();
+                }
+                
+                @Override
+                public void copyState(Counter from, Counter to) {
+                    to.value = from.value;
+                    to.negative = from.negative;
+                }
+                
+                @Override
+                public boolean bindState(View windowView, Counter state) {
+                    return false;
+                }
+            };
+    
+    @Test
+    public void takeLatest_returnsNullWhenNothingPublished() throws Exception {
+        FloatWindowTripleBuffer<Counter> buffer = new FloatWindowTripleBuffer<>(BINDER);
+        assertNull(buffer.takeLatest());
+    }
+    
+    @Test
+    public void takeLatest_returnsEachPublishedStateOnlyOnce() throws Exception {
+        FloatWindowTripleBuffer<Counter> buffer = new FloatWindowTripleBuffer<>(BINDER);
+        buffer.beginWrite().value = 1;
+        buffer.endWrite();
+        assertEquals(1, buffer.takeLatest().value);
+        // Nothing new, the front buffer is kept.
+        assertNull(buffer.takeLatest());
+        assertEquals(1, buffer.getFront().value);
+        
+        // Only the latest one of the writes is taken.
+        buffer.beginWrite().value = 2;
+        buffer.endWrite();
+        buffer.beginWrite().value = 3;
+        buffer.endWrite();
+        assertEquals(3, buffer.takeLatest().value);
+        assertNull(buffer.takeLatest());
+        assertEquals(3, buffer.getFront().value);
+    }
+    
+    @Test
+    public void beginWrite_keepsLatestContent() throws Exception {
+        FloatWindowTripleBuffer<Counter> buffer = new FloatWindowTripleBuffer<>(BINDER);
+        for (int i = 0; i < 10; i++) {
+            buffer.beginWrite().value++;
+            buffer.endWrite();
+            if (i % 3 == 0) {
+                buffer.takeLatest();
+            }
+        }
+        assertEquals(10, buffer.beginWrite().value);
+        buffer.endWrite();
+    }
+    
+    @Test
+    public void consumer_neverTakesStaleOrTornState() throws Exception {
+        final int producerCount = 4;
+        final int writeCount = 100000;
+        final FloatWindowTripleBuffer<Counter> buffer = new FloatWindowTripleBuffer<>(BINDER);
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        
+        Thread[] producers = new Thread[producerCount];
+        for (int p = 0; p < producerCount; p++) {
+            producers[p] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        startLatch.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < writeCount; i++) {
+                        Counter counter = buffer.beginWrite();
+                        try {
+                            counter.value++;
+                            counter.negative = -counter.value;
+                        } finally {
+                            buffer.endWrite();
+                        }
+                    }
+                }
+            });
+            producers[p].start();
+        }
+        startLatch.countDown();
+        
+        // The producers write a growing value, the consumer must never see it going back.
+        final long total = (long) producerCount * writeCount;
+        long lastValue = 0;
+        while (lastValue < total) {
+            Counter counter = buffer.takeLatest();
+            if (counter == null) {
+                Thread.yield();
+                continue;
+            }
+            assertTrue("Took stale state " + counter.value + " after " + lastValue, counter.value > lastValue);
+            assertEquals(-counter.value, counter.negative);
+            lastValue = counter.value;
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        assertNull(buffer.takeLatest());
+        assertEquals(total, buffer.getFront().value);
+    }
+}
\ No newline at end of file